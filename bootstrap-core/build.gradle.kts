@@ -23,6 +23,26 @@ dependencies {
     implementation("org.apache.maven:maven-resolver-provider:3.9.6")
 }
 
+testing {
+    suites {
+        val test by getting(JvmTestSuite::class) {
+            useJUnitJupiter()
+            dependencies {
+                // Resolver tests run against synthetic repositories, without the network
+                implementation(project(":bootstrap-testing"))
+            }
+            targets {
+                all {
+                    testTask.configure {
+                        // Read once by the JDK HTTP server behind RepositoryServer, see its documentation
+                        systemProperty("sun.net.httpserver.nodelay", "true")
+                    }
+                }
+            }
+        }
+    }
+}
+
 publishing {
     var repository = System.getProperty("repository.name", "snapshots").replaceFirstChar { if (it.isLowerCase()) it.titlecase(
         Locale.getDefault()) else it.toString() }
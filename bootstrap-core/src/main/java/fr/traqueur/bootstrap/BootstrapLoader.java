@@ -1,15 +1,31 @@
 package fr.traqueur.bootstrap;
 
+import fr.traqueur.bootstrap.config.ClassIndex;
+import fr.traqueur.bootstrap.config.DependencyLock;
 import fr.traqueur.bootstrap.config.DependencyManifest;
 import fr.traqueur.bootstrap.loader.IsolatedClassLoader;
 import fr.traqueur.bootstrap.loader.LoaderContext;
+import fr.traqueur.bootstrap.loader.ModuleLayerFactory;
+import fr.traqueur.bootstrap.loader.NativeLibraryCache;
+import fr.traqueur.bootstrap.loader.RuntimeResolver;
+import fr.traqueur.bootstrap.loader.SignatureCache;
 import fr.traqueur.bootstrap.resolver.ArtifactResolver;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderers;
 
+import javax.management.JMException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Main entry point for the dynamic loading system.
@@ -18,8 +34,11 @@ import java.util.List;
  * <p>The bootstrap process:</p>
  * <ol>
  *   <li>Loads the dependency manifest from META-INF/dynamic-dependencies.json</li>
- *   <li>Resolves and downloads dependencies using Maven Resolver</li>
- *   <li>Creates an isolated child-first ClassLoader with the dependencies</li>
+ *   <li>Reuses the lockfile of the cache directory if it matches the manifest, or resolves and
+ *       downloads dependencies using Maven Resolver and writes a new lockfile</li>
+ *   <li>Creates an isolated child-first ClassLoader with the dependencies, routed by the
+ *       build-time package index from META-INF/bootstrap-index.json when available, or a child
+ *       module layer when the {@code layer} loading mode is selected</li>
  *   <li>Loads and instantiates the application class within the isolated ClassLoader</li>
  *   <li>Calls the application's start method</li>
  * </ol>
@@ -44,9 +63,25 @@ import java.util.List;
 public final class BootstrapLoader {
 
     private static final String MANIFEST_PATH = "META-INF/bootstrap-dependencies.json";
+    private static final String INDEX_PATH = "META-INF/" + ClassIndex.FILE_NAME;
     private static final String CACHE_DIR_PROPERTY = "bootstraploader.cache.dir";
     private static final String CACHE_DIR_ENV = "BOOTSTRAP_LOADER_CACHE_DIR";
     private static final String DEFAULT_CACHE_DIR = ".bootstrap-loader/cache";
+    private static final String MODE_PROPERTY = "bootstraploader.mode";
+    private static final String MODE_ENV = "BOOTSTRAP_LOADER_MODE";
+    private static final String LAYER_MODE = "layer";
+    private static final String JMX_PROPERTY = "bootstraploader.telemetry.jmx";
+    private static final String JMX_ENV = "BOOTSTRAP_LOADER_TELEMETRY_JMX";
+    private static final String IDLE_TIMEOUT_PROPERTY = "bootstraploader.jar.idle.timeout";
+    private static final String IDLE_TIMEOUT_ENV = "BOOTSTRAP_LOADER_JAR_IDLE_TIMEOUT";
+    private static final String SIGNATURE_CACHE_PROPERTY = "bootstraploader.signatures.cache";
+    private static final String SIGNATURE_CACHE_ENV = "BOOTSTRAP_LOADER_SIGNATURES_CACHE";
+    private static final String SIGNATURE_TRUST_PROPERTY = "bootstraploader.signatures.trust.mtime";
+    private static final String SIGNATURE_TRUST_ENV = "BOOTSTRAP_LOADER_SIGNATURES_TRUST_MTIME";
+    private static final String SIGNATURE_CACHE_DIR = "bootstrap-signatures";
+    private static final String NATIVE_CACHE_PROPERTY = "bootstraploader.native.cache";
+    private static final String NATIVE_CACHE_ENV = "BOOTSTRAP_LOADER_NATIVE_CACHE";
+    private static final String NATIVE_CACHE_DIR = "bootstrap-natives";
 
     private BootstrapLoader() {
         throw new UnsupportedOperationException("Utility class");
@@ -97,19 +132,23 @@ public final class BootstrapLoader {
      */
     public static void bootstrap(String[] args, BootstrapEntrypoint entrypoint) {
         try {
-            System.out.println("[Bootstrap] Starting bootstrap process...");
+            ProgressRenderers.messages().println("[Bootstrap] Starting bootstrap process...");
 
             // Load manifest
             DependencyManifest manifest = loadManifest();
-            System.out.println("[Bootstrap] Loaded manifest with " + manifest.dependencies().size() + " dependencies");
+            ProgressRenderers.messages().println("[Bootstrap] Loaded manifest with " + manifest.dependencies().size() + " dependencies");
 
             // Resolve dependencies
             Path cacheDir = getCacheDirectory();
-            System.out.println("[Bootstrap] Using cache directory: " + cacheDir);
+            ProgressRenderers.messages().println("[Bootstrap] Using cache directory: " + cacheDir);
 
-            ArtifactResolver resolver = new ArtifactResolver(cacheDir, manifest.repositories());
-            List<Path> artifacts = resolver.resolve(manifest.dependencies());
-            System.out.println("[Bootstrap] Resolved " + artifacts.size() + " artifacts");
+            // Created on demand, and kept for the runtime resolver once created
+            AtomicReference<ArtifactResolver> artifactResolver = new AtomicReference<>();
+            Supplier<ArtifactResolver> resolverFactory = () -> artifactResolver.updateAndGet(current ->
+                current != null ? current : new ArtifactResolver(cacheDir, manifest.repositories()));
+
+            DependencyLock lock = resolveLock(manifest, cacheDir, resolverFactory);
+            List<Path> artifacts = new ArrayList<>(lock.paths(cacheDir));
 
             // Add the application JAR itself to the classpath
             // This is necessary so that application classes (like DiscordBot) are loaded
@@ -117,14 +156,38 @@ public final class BootstrapLoader {
             Path appJar = getApplicationJar();
             if (appJar != null) {
                 artifacts.addFirst(appJar);  // Add at beginning to prioritize app classes
-                System.out.println("[Bootstrap] Added application JAR: " + appJar.getFileName());
+                ProgressRenderers.messages().println("[Bootstrap] Added application JAR: " + appJar.getFileName());
+            }
+
+            // Create module layer or isolated ClassLoader
+            ModuleLayer layer = LAYER_MODE.equalsIgnoreCase(getLoadingMode()) ? createLayer(artifacts) : null;
+            IsolatedClassLoader classLoader = null;
+            if (layer == null) {
+                Map<Path, ClassIndex.Entry> index = loadIndex(lock, cacheDir);
+                Map<Path, List<String>> packageIndex = new HashMap<>();
+                Map<Path, List<String>> resourceIndex = new HashMap<>();
+                index.forEach((path, entry) -> {
+                    packageIndex.put(path, entry.packages());
+                    if (entry.resources() != null) {
+                        resourceIndex.put(path, entry.resources());
+                    }
+                });
+                classLoader = new IsolatedClassLoader(artifacts, packageIndex, resourceIndex);
+                registerTelemetry(classLoader);
+                configureIdleClose(classLoader);
+                configureSignatureCache(classLoader, cacheDir);
+                configureNativeLibraryCache(classLoader, cacheDir);
+            } else {
+                reportLayerLimitations();
             }
 
-            // Create isolated ClassLoader
-            IsolatedClassLoader classLoader = new IsolatedClassLoader(artifacts);
-            LoaderContext context = new LoaderContext(classLoader, args);
+            // Plugins attach their own dependencies on top of the application loader
+            ClassLoader applicationLoader = classLoader != null ? classLoader : layer.modules().iterator().next().getClassLoader();
+            RuntimeResolver runtimeResolver = new RuntimeResolver(resolverFactory, applicationLoader,
+                lock.artifacts().stream().map(DependencyLock.Entry::coordinates).toList());
+            LoaderContext context = new LoaderContext(classLoader, layer, runtimeResolver, args);
 
-            System.out.println("[Bootstrap] ClassLoader ready, running entrypoint...");
+            ProgressRenderers.messages().println("[Bootstrap] ClassLoader ready, running entrypoint...");
 
             // Run entrypoint
             entrypoint.run(context);
@@ -134,6 +197,242 @@ public final class BootstrapLoader {
         }
     }
 
+    /**
+     * Resolves the artifacts of a manifest.
+     * If the cache directory holds a lockfile matching the manifest and all locked artifacts are present,
+     * they are used as-is without any resolution or network access (e.g. a cache pre-warmed at image build time).
+     * Otherwise, the manifest is resolved and a new lockfile is written. A previous lockfile that no longer
+     * matches is used to re-resolve only the root dependencies that changed.
+     *
+     * @param manifest        the dependency manifest
+     * @param cacheDir        the cache directory
+     * @param resolverFactory provides the artifact resolver, only called if resolution is needed
+     * @return the lock of the resolved artifacts, all present in the cache directory
+     * @throws Exception if resolution fails
+     */
+    private static DependencyLock resolveLock(DependencyManifest manifest, Path cacheDir,
+                                              Supplier<ArtifactResolver> resolverFactory) throws Exception {
+        DependencyLock lock = readLock(cacheDir);
+        if (lock != null && lock.matches(manifest) && lock.paths(cacheDir) != null) {
+            ProgressRenderers.messages().println("[Bootstrap] Using " + lock.artifacts().size() + " locked artifacts from " + DependencyLock.FILE_NAME);
+            return lock;
+        }
+
+        lock = resolverFactory.get().resolveLock(manifest.dependencies(), manifest.exclusions(), lock);
+        ProgressRenderers.messages().println("[Bootstrap] Resolved " + lock.artifacts().size() + " artifacts");
+        try {
+            lock.write(cacheDir);
+        } catch (IOException e) {
+            System.err.println("[Bootstrap] Warning: Could not write " + DependencyLock.FILE_NAME + ": " + e.getMessage());
+        }
+        return lock;
+    }
+
+    /**
+     * Creates a child module layer of the artifacts.
+     * Falls back to the isolated ClassLoader when the artifacts cannot form a layer,
+     * e.g. when two jars hold the same package or a jar name yields no valid module name.
+     *
+     * @param artifacts the paths to JAR files, in classpath order
+     * @return the module layer, or null if the layer cannot be created
+     */
+    private static ModuleLayer createLayer(List<Path> artifacts) {
+        if (artifacts.isEmpty()) {
+            return null;
+        }
+        try {
+            ModuleLayer layer = ModuleLayerFactory.create(artifacts, BootstrapLoader.class.getClassLoader());
+            ProgressRenderers.messages().println("[Bootstrap] Created module layer with " + layer.modules().size() + " modules");
+            return layer;
+        } catch (RuntimeException e) {
+            System.err.println("[Bootstrap] Warning: Could not create module layer, using isolated ClassLoader: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reports the features of the isolated ClassLoader that are inactive in module layer mode.
+     * A warning is printed for the features explicitly enabled, as their setting is ignored.
+     */
+    private static void reportLayerLimitations() {
+        List<String> ignored = new ArrayList<>();
+        if (setting(IDLE_TIMEOUT_PROPERTY, IDLE_TIMEOUT_ENV) != null) {
+            ignored.add("jar idle timeout");
+        }
+        if (Boolean.parseBoolean(setting(SIGNATURE_CACHE_PROPERTY, SIGNATURE_CACHE_ENV))) {
+            ignored.add("signature cache");
+        }
+        if (Boolean.parseBoolean(setting(JMX_PROPERTY, JMX_ENV))) {
+            ignored.add("class-loading telemetry");
+        }
+        if (Boolean.parseBoolean(setting(NATIVE_CACHE_PROPERTY, NATIVE_CACHE_ENV))) {
+            ignored.add("native library cache");
+        }
+        if (!ignored.isEmpty()) {
+            System.err.println("[Bootstrap] Warning: Not available in module layer mode, ignored: " + String.join(", ", ignored));
+        }
+        ProgressRenderers.messages().println("[Bootstrap] Module layer mode: class-loading telemetry, jar idle close, "
+            + "signature cache and native library cache are inactive");
+    }
+
+    /**
+     * Reads a setting from a system property, then an environment variable.
+     *
+     * @param property the system property name
+     * @param env      the environment variable name
+     * @return the setting value, or null if not set
+     */
+    private static String setting(String property, String env) {
+        String value = System.getProperty(property);
+        return value != null ? value : System.getenv(env);
+    }
+
+    /**
+     * Enables closing of idle jars when an idle timeout, in seconds, is configured.
+     * Priority: system property > environment variable > disabled.
+     *
+     * @param classLoader the isolated ClassLoader
+     */
+    private static void configureIdleClose(IsolatedClassLoader classLoader) {
+        String timeout = System.getProperty(IDLE_TIMEOUT_PROPERTY);
+        if (timeout == null) {
+            timeout = System.getenv(IDLE_TIMEOUT_ENV);
+        }
+        if (timeout == null) {
+            return;
+        }
+        try {
+            long seconds = Long.parseLong(timeout.trim());
+            if (seconds > 0) {
+                classLoader.enableIdleClose(Duration.ofSeconds(seconds));
+                ProgressRenderers.messages().println("[Bootstrap] Closing jars idle for " + seconds + "s");
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("[Bootstrap] Warning: Invalid jar idle timeout: " + timeout);
+        }
+    }
+
+    /**
+     * Verifies signed jars once through the signature cache of the cache directory, when enabled.
+     * Jars are recognized by their SHA-256, or by their size and modification time if explicitly trusted.
+     * Priority: system property > environment variable > disabled, for both settings.
+     *
+     * @param classLoader the isolated ClassLoader
+     * @param cacheDir    the cache directory
+     */
+    private static void configureSignatureCache(IsolatedClassLoader classLoader, Path cacheDir) {
+        String enabled = System.getProperty(SIGNATURE_CACHE_PROPERTY);
+        if (enabled == null) {
+            enabled = System.getenv(SIGNATURE_CACHE_ENV);
+        }
+        if (!Boolean.parseBoolean(enabled)) {
+            return;
+        }
+        String trusted = System.getProperty(SIGNATURE_TRUST_PROPERTY);
+        if (trusted == null) {
+            trusted = System.getenv(SIGNATURE_TRUST_ENV);
+        }
+        SignatureCache cache = new SignatureCache(cacheDir.resolve(SIGNATURE_CACHE_DIR), Boolean.parseBoolean(trusted));
+        int signedJars = classLoader.useSignatureCache(cache);
+        ProgressRenderers.messages().println("[Bootstrap] Using cached signatures for " + signedJars + " signed jars");
+    }
+
+    /**
+     * Serves the native libraries bundled in jars from the native library cache of the cache directory,
+     * unless disabled or unsupported on this platform.
+     * Priority: system property > environment variable > enabled.
+     *
+     * @param classLoader the isolated ClassLoader
+     * @param cacheDir    the cache directory
+     */
+    private static void configureNativeLibraryCache(IsolatedClassLoader classLoader, Path cacheDir) {
+        String enabled = System.getProperty(NATIVE_CACHE_PROPERTY);
+        if (enabled == null) {
+            enabled = System.getenv(NATIVE_CACHE_ENV);
+        }
+        if (enabled != null && !Boolean.parseBoolean(enabled)) {
+            return;
+        }
+        if (NativeLibraryCache.isSupported()) {
+            classLoader.useNativeLibraryCache(new NativeLibraryCache(cacheDir.resolve(NATIVE_CACHE_DIR)));
+        }
+    }
+
+    /**
+     * Publishes the class-loading counters of a ClassLoader as a JMX MBean, unless disabled.
+     * Priority: system property > environment variable > enabled.
+     *
+     * @param classLoader the isolated ClassLoader
+     */
+    private static void registerTelemetry(IsolatedClassLoader classLoader) {
+        String enabled = System.getProperty(JMX_PROPERTY);
+        if (enabled == null) {
+            enabled = System.getenv(JMX_ENV);
+        }
+        if (enabled != null && !Boolean.parseBoolean(enabled)) {
+            return;
+        }
+        try {
+            ProgressRenderers.messages().println("[Bootstrap] Registered class-loading telemetry MBean " + classLoader.telemetry().register());
+        } catch (JMException e) {
+            System.err.println("[Bootstrap] Warning: Could not register class-loading telemetry MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the package and resource index of the resolved artifacts.
+     * The index generated at build time is read from the classpath, falling back to the one written
+     * into the cache directory by the prefetch task. Only artifacts whose exact coordinates are indexed
+     * are routed; any other artifact is searched for every class and resource.
+     *
+     * @param lock     the lock of the resolved artifacts
+     * @param cacheDir the cache directory
+     * @return the index entry of each indexed artifact, empty if no index is available
+     */
+    private static Map<Path, ClassIndex.Entry> loadIndex(DependencyLock lock, Path cacheDir) {
+        ClassIndex index;
+        try (InputStream is = BootstrapLoader.class.getClassLoader().getResourceAsStream(INDEX_PATH)) {
+            if (is != null) {
+                index = ClassIndex.parse(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            } else {
+                Path cacheIndex = cacheDir.resolve(ClassIndex.FILE_NAME);
+                if (!Files.isRegularFile(cacheIndex)) {
+                    return Map.of();
+                }
+                index = ClassIndex.parse(Files.readString(cacheIndex, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.err.println("[Bootstrap] Warning: Could not read " + ClassIndex.FILE_NAME + ": " + e.getMessage());
+            return Map.of();
+        }
+
+        Map<String, ClassIndex.Entry> entries = index.byCoordinates();
+        Map<Path, ClassIndex.Entry> artifactIndex = new HashMap<>();
+        for (DependencyLock.Entry artifact : lock.artifacts()) {
+            ClassIndex.Entry entry = entries.get(artifact.coordinates());
+            if (entry != null) {
+                artifactIndex.put(cacheDir.resolve(artifact.path()), entry);
+            }
+        }
+        ProgressRenderers.messages().println("[Bootstrap] Indexed " + artifactIndex.size() + "/" + lock.artifacts().size() + " artifacts");
+        return artifactIndex;
+    }
+
+    /**
+     * Reads the lockfile of the cache directory, ignoring unreadable lockfiles.
+     *
+     * @param cacheDir the cache directory
+     * @return the lock, or null if absent or unreadable
+     */
+    private static DependencyLock readLock(Path cacheDir) {
+        try {
+            return DependencyLock.read(cacheDir);
+        } catch (IOException e) {
+            System.err.println("[Bootstrap] Warning: Could not read " + DependencyLock.FILE_NAME + ": " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Loads the dependency manifest from the classpath.
      *
@@ -168,6 +467,20 @@ public final class BootstrapLoader {
         return Paths.get(cacheDir);
     }
 
+    /**
+     * Gets the loading mode: {@code classloader} (default) or {@code layer}.
+     * Priority: system property > environment variable > default.
+     *
+     * @return the loading mode
+     */
+    private static String getLoadingMode() {
+        String mode = System.getProperty(MODE_PROPERTY);
+        if (mode == null) {
+            mode = System.getenv(MODE_ENV);
+        }
+        return mode != null ? mode : "classloader";
+    }
+
     /**
      * Gets the path to the application JAR file.
      *
@@ -0,0 +1,111 @@
+package fr.traqueur.bootstrap.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents the package index generated at build time in META-INF/bootstrap-index.json.
+ * It lists the packages and resource names held by each resolved artifact, so that class and
+ * resource lookups can be routed to the right jars without reading their central directory first.
+ * Like {@link DependencyManifest}, it uses a minimal regex-based JSON parser.
+ *
+ * @param artifacts the indexed artifacts
+ * <p>Expected JSON format:</p>
+ * <pre>{@code
+ * {
+ *   "artifacts": [
+ *     { "coordinates": "net.dv8tion:JDA:jar:6.1.2", "classes": 1234, "packages": ["net.dv8tion.jda.api"],
+ *       "resources": ["META-INF/MANIFEST.MF"] }
+ *   ]
+ * }
+ * }</pre>
+ */
+public record ClassIndex(List<Entry> artifacts) {
+
+    /**
+     * The name of the index file, both in META-INF and in the cache directory.
+     */
+    public static final String FILE_NAME = "bootstrap-index.json";
+
+    /**
+     * Parses a JSON string into a ClassIndex.
+     *
+     * @param json the JSON string to parse
+     * @return the parsed index
+     */
+    public static ClassIndex parse(String json) {
+        List<Entry> artifacts = new ArrayList<>();
+
+        // Artifact objects hold a packages array but no nested object
+        Pattern objPattern = Pattern.compile("\\{([^{}]*)}");
+        Pattern coordinatesPattern = Pattern.compile("\"coordinates\"\\s*:\\s*\"([^\"]+)\"");
+        Pattern classesPattern = Pattern.compile("\"classes\"\\s*:\\s*(\\d+)");
+        Pattern packagesPattern = Pattern.compile("\"packages\"\\s*:\\s*\\[([^]]*)]");
+        Pattern resourcesPattern = Pattern.compile("\"resources\"\\s*:\\s*\\[([^]]*)]");
+        Pattern stringPattern = Pattern.compile("\"([^\"]+)\"");
+
+        Matcher objMatcher = objPattern.matcher(json);
+        while (objMatcher.find()) {
+            String obj = objMatcher.group(1);
+            Matcher coordinatesMatcher = coordinatesPattern.matcher(obj);
+            if (!coordinatesMatcher.find()) {
+                continue;
+            }
+
+            Matcher classesMatcher = classesPattern.matcher(obj);
+            int classes = classesMatcher.find() ? Integer.parseInt(classesMatcher.group(1)) : 0;
+
+            List<String> packages = new ArrayList<>();
+            Matcher packagesMatcher = packagesPattern.matcher(obj);
+            if (packagesMatcher.find()) {
+                Matcher packageMatcher = stringPattern.matcher(packagesMatcher.group(1));
+                while (packageMatcher.find()) {
+                    packages.add(packageMatcher.group(1));
+                }
+            }
+
+            // Resources are absent from older indexes, and for artifacts with unindexable names
+            List<String> resources = null;
+            Matcher resourcesMatcher = resourcesPattern.matcher(obj);
+            if (resourcesMatcher.find()) {
+                resources = new ArrayList<>();
+                Matcher resourceMatcher = stringPattern.matcher(resourcesMatcher.group(1));
+                while (resourceMatcher.find()) {
+                    resources.add(resourceMatcher.group(1));
+                }
+            }
+
+            artifacts.add(new Entry(coordinatesMatcher.group(1), classes, packages, resources));
+        }
+
+        return new ClassIndex(artifacts);
+    }
+
+    /**
+     * Gets the index entries by artifact coordinates.
+     *
+     * @return a map from coordinates to index entry
+     */
+    public Map<String, Entry> byCoordinates() {
+        Map<String, Entry> map = new HashMap<>();
+        for (Entry artifact : artifacts) {
+            map.put(artifact.coordinates(), artifact);
+        }
+        return map;
+    }
+
+    /**
+     * Represents the index of a single artifact.
+     *
+     * @param coordinates the artifact coordinates, in format "groupId:artifactId:extension[:classifier]:version"
+     * @param classes     the number of classes in the artifact
+     * @param packages    the packages the artifact holds classes in
+     * @param resources   the names of the other entries of the artifact, or null if not indexed
+     */
+    public record Entry(String coordinates, int classes, List<String> packages, List<String> resources) {
+    }
+}
@@ -0,0 +1,290 @@
+package fr.traqueur.bootstrap.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents the lockfile written next to the artifact cache after a successful resolution.
+ * It records the fully resolved artifact list for a given set of root dependencies, so that
+ * a later start with the same manifest can skip dependency resolution entirely.
+ * Like {@link DependencyManifest}, it uses a minimal regex-based JSON parser.
+ *
+ * <p>The lockfile is written either at runtime by the bootstrap process, or at build time
+ * by the {@code bootstrapPrefetch} Gradle task. Artifact paths are relative to the cache directory,
+ * which uses the Maven local repository layout.</p>
+ *
+ * <p>Locks written by the runtime also record the dependency graph: the artifact keys each root
+ * dependency reaches (including conflict losers), and the roots each artifact was reached from.
+ * This lets a later resolution re-collect only the roots that changed.</p>
+ *
+ * @param dependencies the root dependencies the lock was resolved from, as found in the manifest
+ * @param exclusions   the excluded artifacts the lock was resolved with, as found in the manifest
+ * @param graph        the subtree of each root dependency, empty if the graph was not recorded
+ * @param artifacts    the resolved artifacts, in classpath order
+ * <p>Expected JSON format:</p>
+ * <pre>{@code
+ * {
+ *   "dependencies": [
+ *     "net.dv8tion:JDA:6.1.2"
+ *   ],
+ *   "exclusions": [],
+ *   "graph": [
+ *     { "root": "net.dv8tion:JDA:6.1.2", "keys": ["net.dv8tion:JDA", "org.slf4j:slf4j-api"] }
+ *   ],
+ *   "artifacts": [
+ *     { "coordinates": "net.dv8tion:JDA:jar:6.1.2", "path": "net/dv8tion/JDA/6.1.2/JDA-6.1.2.jar", "roots": [0] }
+ *   ]
+ * }
+ * }</pre>
+ */
+public record DependencyLock(List<String> dependencies, List<String> exclusions, List<Subtree> graph, List<Entry> artifacts) {
+
+    /**
+     * The name of the lockfile inside the cache directory.
+     */
+    public static final String FILE_NAME = "bootstrap.lock.json";
+
+    private static final Pattern STRING_PATTERN = Pattern.compile("\"([^\"]+)\"");
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("(\\d+)");
+    private static final Pattern OBJECT_PATTERN = Pattern.compile("\\{([^{}]*)}");
+
+    /**
+     * Parses a JSON string into a DependencyLock.
+     *
+     * @param json the JSON string to parse
+     * @return the parsed lock
+     */
+    public static DependencyLock parse(String json) {
+        List<String> dependencies = parseStrings(arraySection(json, "dependencies"));
+        List<String> exclusions = parseStrings(arraySection(json, "exclusions"));
+        List<Subtree> graph = new ArrayList<>();
+        List<Entry> artifacts = new ArrayList<>();
+
+        // Parse graph array
+        Pattern rootPattern = Pattern.compile("\"root\"\\s*:\\s*\"([^\"]+)\"");
+        Matcher graphMatcher = OBJECT_PATTERN.matcher(arraySection(json, "graph"));
+        while (graphMatcher.find()) {
+            String obj = graphMatcher.group(1);
+            Matcher rootMatcher = rootPattern.matcher(obj);
+            if (rootMatcher.find()) {
+                graph.add(new Subtree(rootMatcher.group(1), parseStrings(arraySection(obj, "keys"))));
+            }
+        }
+
+        // Parse artifacts array
+        Pattern coordinatesPattern = Pattern.compile("\"coordinates\"\\s*:\\s*\"([^\"]+)\"");
+        Pattern pathPattern = Pattern.compile("\"path\"\\s*:\\s*\"([^\"]+)\"");
+        Matcher objMatcher = OBJECT_PATTERN.matcher(arraySection(json, "artifacts"));
+        while (objMatcher.find()) {
+            String obj = objMatcher.group(1);
+            Matcher coordinatesMatcher = coordinatesPattern.matcher(obj);
+            Matcher pathMatcher = pathPattern.matcher(obj);
+            if (coordinatesMatcher.find() && pathMatcher.find()) {
+                List<Integer> roots = new ArrayList<>();
+                Matcher rootsMatcher = NUMBER_PATTERN.matcher(arraySection(obj, "roots"));
+                while (rootsMatcher.find()) {
+                    roots.add(Integer.parseInt(rootsMatcher.group(1)));
+                }
+                artifacts.add(new Entry(coordinatesMatcher.group(1), pathMatcher.group(1), roots));
+            }
+        }
+
+        return new DependencyLock(dependencies, exclusions, graph, artifacts);
+    }
+
+    /**
+     * Extracts the content of a JSON array property, nested arrays included.
+     *
+     * @param json the JSON string to search
+     * @param name the name of the array property
+     * @return the content between the array brackets, empty if the property is absent
+     */
+    private static String arraySection(String json, String name) {
+        Matcher matcher = Pattern.compile("\"" + name + "\"\\s*:\\s*\\[").matcher(json);
+        if (!matcher.find()) {
+            return "";
+        }
+        int depth = 1;
+        for (int i = matcher.end(); i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return json.substring(matcher.end(), i);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Parses the strings of a JSON array content.
+     *
+     * @param array the array content
+     * @return the array values
+     */
+    private static List<String> parseStrings(String array) {
+        List<String> values = new ArrayList<>();
+        Matcher valueMatcher = STRING_PATTERN.matcher(array);
+        while (valueMatcher.find()) {
+            values.add(valueMatcher.group(1));
+        }
+        return values;
+    }
+
+    /**
+     * Reads the lockfile of a cache directory.
+     *
+     * @param cacheDirectory the cache directory
+     * @return the parsed lock, or null if the cache directory holds no lockfile
+     * @throws IOException if the lockfile exists but cannot be read
+     */
+    public static DependencyLock read(Path cacheDirectory) throws IOException {
+        Path file = cacheDirectory.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return parse(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes this lock into a cache directory, replacing any previous lockfile.
+     *
+     * @param cacheDirectory the cache directory
+     * @throws IOException if the lockfile cannot be written
+     */
+    public void write(Path cacheDirectory) throws IOException {
+        Files.createDirectories(cacheDirectory);
+        Path temp = Files.createTempFile(cacheDirectory, FILE_NAME, ".tmp");
+        try {
+            Files.writeString(temp, toJson(), StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, cacheDirectory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cacheDirectory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Checks whether this lock was resolved from the same root dependencies and exclusions as a manifest.
+     * The order of the dependencies and exclusions is not significant.
+     *
+     * @param manifest the manifest to compare with
+     * @return true if the lock can be used in place of a resolution of the manifest
+     */
+    public boolean matches(DependencyManifest manifest) {
+        return dependencies.size() == manifest.dependencies().size()
+            && new HashSet<>(dependencies).equals(new HashSet<>(manifest.dependencies()))
+            && new HashSet<>(exclusions).equals(new HashSet<>(manifest.exclusions()));
+    }
+
+    /**
+     * Checks whether this lock recorded the dependency graph needed for incremental resolution.
+     *
+     * @return true if every root dependency has its subtree recorded
+     */
+    public boolean hasGraph() {
+        return graph.size() == dependencies.size();
+    }
+
+    /**
+     * Resolves the artifact paths of this lock against a cache directory.
+     *
+     * @param cacheDirectory the cache directory the lock belongs to
+     * @return the absolute artifact paths in classpath order, or null if any artifact is missing from the cache
+     */
+    public List<Path> paths(Path cacheDirectory) {
+        List<Path> paths = new ArrayList<>(artifacts.size());
+        for (Entry artifact : artifacts) {
+            Path path = cacheDirectory.resolve(artifact.path());
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * Serializes this lock to JSON.
+     *
+     * @return the JSON representation, in the format accepted by {@link #parse(String)}
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"dependencies\": [\n");
+        appendStrings(json, dependencies, "    ", ",\n");
+        json.append("\n  ],\n");
+        json.append("  \"exclusions\": [\n");
+        appendStrings(json, exclusions, "    ", ",\n");
+        json.append("\n  ],\n");
+        json.append("  \"graph\": [\n");
+        for (int i = 0; i < graph.size(); i++) {
+            Subtree subtree = graph.get(i);
+            json.append("    { \"root\": \"").append(subtree.root()).append("\", \"keys\": [");
+            appendStrings(json, subtree.keys(), "", ", ");
+            json.append("] }").append(i < graph.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ],\n");
+        json.append("  \"artifacts\": [\n");
+        for (int i = 0; i < artifacts.size(); i++) {
+            Entry artifact = artifacts.get(i);
+            json.append("    { \"coordinates\": \"").append(artifact.coordinates())
+                .append("\", \"path\": \"").append(artifact.path())
+                .append("\", \"roots\": ").append(artifact.roots().toString().replace(" ", ""))
+                .append(" }")
+                .append(i < artifacts.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    /**
+     * Appends quoted strings to a JSON builder.
+     *
+     * @param json      the builder
+     * @param values    the values to append
+     * @param indent    the prefix of each value
+     * @param separator the separator between values
+     */
+    private static void appendStrings(StringBuilder json, List<String> values, String indent, String separator) {
+        for (int i = 0; i < values.size(); i++) {
+            json.append(indent).append('"').append(values.get(i)).append('"');
+            if (i < values.size() - 1) {
+                json.append(separator);
+            }
+        }
+    }
+
+    /**
+     * Represents the subtree of a root dependency.
+     *
+     * @param root the root dependency, as found in the manifest
+     * @param keys the "groupId:artifactId" of every node reached from the root, conflict losers included
+     */
+    public record Subtree(String root, List<String> keys) {
+    }
+
+    /**
+     * Represents a resolved artifact of the lock.
+     *
+     * @param coordinates the artifact coordinates, in format "groupId:artifactId:extension[:classifier]:version"
+     * @param path        the artifact path relative to the cache directory, using '/' as separator
+     * @param roots       the indexes of the root dependencies the artifact was reached from, empty if not recorded
+     */
+    public record Entry(String coordinates, String path, List<Integer> roots) {
+    }
+}
@@ -11,6 +11,7 @@ import java.util.regex.Pattern;
  *
  * @param dependencies  the list of Maven coordinates for dependencies
  * @param repositories  the list of Maven repository configurations
+ * @param exclusions    the transitive artifacts found unreachable at build time, as "groupId:artifactId"
  * <p>Expected JSON format:</p>
  * <pre>{@code
  * {
@@ -20,11 +21,24 @@ import java.util.regex.Pattern;
  *   ],
  *   "repositories": [
  *     { "id": "central", "url": "https://repo.maven.apache.org/maven2/" }
+ *   ],
+ *   "exclusions": [
+ *     "com.google.crypto.tink:tink"
  *   ]
  * }
  * }</pre>
  */
-public record DependencyManifest(List<String> dependencies, List<Repository> repositories) {
+public record DependencyManifest(List<String> dependencies, List<Repository> repositories, List<String> exclusions) {
+
+    /**
+     * Creates a manifest without exclusions, as before exclusions were recorded.
+     *
+     * @param dependencies the list of Maven coordinates for dependencies
+     * @param repositories the list of Maven repository configurations
+     */
+    public DependencyManifest(List<String> dependencies, List<Repository> repositories) {
+        this(dependencies, repositories, List.of());
+    }
 
     /**
      * Parses a JSON string into a DependencyManifest.
@@ -37,6 +51,7 @@ public record DependencyManifest(List<String> dependencies, List<Repository> rep
     public static DependencyManifest parse(String json) {
         List<String> dependencies = new ArrayList<>();
         List<Repository> repositories = new ArrayList<>();
+        List<String> exclusions = new ArrayList<>();
 
         // Parse dependencies array
         Pattern depsArrayPattern = Pattern.compile("\"dependencies\"\\s*:\\s*\\[([^]]*)]");
@@ -75,7 +90,17 @@ public record DependencyManifest(List<String> dependencies, List<Repository> rep
             }
         }
 
-        return new DependencyManifest(dependencies, repositories);
+        // Parse exclusions array, absent from manifests generated without reachability analysis
+        Pattern exclusionsArrayPattern = Pattern.compile("\"exclusions\"\\s*:\\s*\\[([^]]*)]");
+        Matcher exclusionsArrayMatcher = exclusionsArrayPattern.matcher(json);
+        if (exclusionsArrayMatcher.find()) {
+            Matcher exclusionMatcher = Pattern.compile("\"([^\"]+)\"").matcher(exclusionsArrayMatcher.group(1));
+            while (exclusionMatcher.find()) {
+                exclusions.add(exclusionMatcher.group(1));
+            }
+        }
+
+        return new DependencyManifest(dependencies, repositories, exclusions);
     }
 
     /**
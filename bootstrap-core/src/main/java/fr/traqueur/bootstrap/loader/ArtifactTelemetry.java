@@ -0,0 +1,17 @@
+package fr.traqueur.bootstrap.loader;
+
+/**
+ * Class-loading counters of a single artifact of the {@link IsolatedClassLoader}.
+ * Time is spent in {@code findClass} reading class files, and in {@code defineClass} defining them.
+ *
+ * @param artifact         the path of the jar file or class directory
+ * @param classesDefined   the number of classes defined from this artifact
+ * @param bytesRead        the number of class file bytes read from this artifact
+ * @param lookupMisses     the number of lookups routed to this artifact that did not find the class
+ * @param findClassNanos   the cumulative time spent looking up and reading class files, hits and misses
+ * @param defineClassNanos the cumulative time spent defining classes
+ * @param open             whether the jar is currently open, holding a file descriptor
+ */
+public record ArtifactTelemetry(String artifact, long classesDefined, long bytesRead, long lookupMisses,
+                                long findClassNanos, long defineClassNanos, boolean open) {
+}
@@ -0,0 +1,80 @@
+package fr.traqueur.bootstrap.loader;
+
+import java.util.List;
+
+/**
+ * Point-in-time view of the class-loading counters of an {@link IsolatedClassLoader}.
+ * An artifact that defined no class after the application started is a candidate dead dependency.
+ *
+ * @param artifacts             the counters of each artifact, in classpath order
+ * @param parentDelegations     the number of lookups delegated to the parent ClassLoader
+ * @param parentDelegationNanos the cumulative time spent in parent delegation
+ */
+public record ClassLoadingSnapshot(List<ArtifactTelemetry> artifacts, long parentDelegations, long parentDelegationNanos) {
+
+    /**
+     * Gets the total number of classes defined from all artifacts.
+     *
+     * @return the number of classes defined
+     */
+    public long classesDefined() {
+        return artifacts.stream().mapToLong(ArtifactTelemetry::classesDefined).sum();
+    }
+
+    /**
+     * Gets the total number of class file bytes read from all artifacts.
+     *
+     * @return the number of bytes read
+     */
+    public long bytesRead() {
+        return artifacts.stream().mapToLong(ArtifactTelemetry::bytesRead).sum();
+    }
+
+    /**
+     * Gets the total number of lookup misses over all artifacts.
+     *
+     * @return the number of lookup misses
+     */
+    public long lookupMisses() {
+        return artifacts.stream().mapToLong(ArtifactTelemetry::lookupMisses).sum();
+    }
+
+    /**
+     * Gets the cumulative time spent looking up and reading class files in all artifacts.
+     *
+     * @return the time in nanoseconds
+     */
+    public long findClassNanos() {
+        return artifacts.stream().mapToLong(ArtifactTelemetry::findClassNanos).sum();
+    }
+
+    /**
+     * Gets the cumulative time spent defining classes from all artifacts.
+     *
+     * @return the time in nanoseconds
+     */
+    public long defineClassNanos() {
+        return artifacts.stream().mapToLong(ArtifactTelemetry::defineClassNanos).sum();
+    }
+
+    /**
+     * Gets the number of artifacts whose jar is currently open.
+     *
+     * @return the number of open jars
+     */
+    public long openArtifacts() {
+        return artifacts.stream().filter(ArtifactTelemetry::open).count();
+    }
+
+    /**
+     * Gets the artifacts that did not define any class.
+     *
+     * @return the paths of the unused artifacts
+     */
+    public List<String> unusedArtifacts() {
+        return artifacts.stream()
+            .filter(artifact -> artifact.classesDefined() == 0)
+            .map(ArtifactTelemetry::artifact)
+            .toList();
+    }
+}
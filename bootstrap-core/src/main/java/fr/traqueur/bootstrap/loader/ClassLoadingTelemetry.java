@@ -0,0 +1,145 @@
+package fr.traqueur.bootstrap.loader;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class-loading counters of an {@link IsolatedClassLoader}.
+ * Per-artifact counters are kept by each classpath entry; this class aggregates them with the
+ * parent delegation counters. All counters are {@link LongAdder}s, so recording never contends.
+ */
+public final class ClassLoadingTelemetry implements ClassLoadingTelemetryMXBean {
+
+    private static final String OBJECT_NAME_PREFIX = "fr.traqueur.bootstrap:type=ClassLoading,loader=";
+    private static final AtomicInteger LOADER_IDS = new AtomicInteger();
+
+    private final List<ClassPathEntry> entries;
+    private final LongAdder parentDelegations = new LongAdder();
+    private final LongAdder parentDelegationNanos = new LongAdder();
+    private ObjectName registeredName;
+
+    /**
+     * Creates the telemetry of a classpath.
+     *
+     * @param entries the classpath entries, in classpath order
+     */
+    ClassLoadingTelemetry(List<ClassPathEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Records a lookup delegated to the parent ClassLoader.
+     *
+     * @param startNanos the {@link System#nanoTime()} at which the delegation started
+     */
+    void recordParentDelegation(long startNanos) {
+        parentDelegationNanos.add(System.nanoTime() - startNanos);
+        parentDelegations.increment();
+    }
+
+    /**
+     * Takes a snapshot of the current counters.
+     *
+     * @return the snapshot
+     */
+    public ClassLoadingSnapshot snapshot() {
+        List<ArtifactTelemetry> artifacts = new ArrayList<>(entries.size());
+        for (ClassPathEntry entry : entries) {
+            artifacts.add(entry.telemetry());
+        }
+        return new ClassLoadingSnapshot(List.copyOf(artifacts), parentDelegations.sum(), parentDelegationNanos.sum());
+    }
+
+    /**
+     * Registers this telemetry in the platform MBean server, once.
+     *
+     * @return the name under which the MBean was registered
+     * @throws JMException if the MBean cannot be registered
+     */
+    public synchronized ObjectName register() throws JMException {
+        if (registeredName != null) {
+            return registeredName;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + LOADER_IDS.incrementAndGet());
+        server.registerMBean(this, name);
+        registeredName = name;
+        return name;
+    }
+
+    /**
+     * Removes this telemetry from the platform MBean server, if registered.
+     * The MBean server otherwise keeps a reference to the telemetry, and through its classpath
+     * entries to the jars, after the ClassLoader is closed.
+     *
+     * @throws JMException if the MBean cannot be unregistered
+     */
+    public synchronized void unregister() throws JMException {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (InstanceNotFoundException e) {
+            // Already unregistered through the MBean server
+        }
+        registeredName = null;
+    }
+
+    @Override
+    public List<ArtifactTelemetry> getArtifacts() {
+        return snapshot().artifacts();
+    }
+
+    @Override
+    public List<String> getUnusedArtifacts() {
+        return snapshot().unusedArtifacts();
+    }
+
+    @Override
+    public long getOpenArtifacts() {
+        return snapshot().openArtifacts();
+    }
+
+    @Override
+    public long getClassesDefined() {
+        return snapshot().classesDefined();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return snapshot().bytesRead();
+    }
+
+    @Override
+    public long getLookupMisses() {
+        return snapshot().lookupMisses();
+    }
+
+    @Override
+    public long getFindClassNanos() {
+        return snapshot().findClassNanos();
+    }
+
+    @Override
+    public long getDefineClassNanos() {
+        return snapshot().defineClassNanos();
+    }
+
+    @Override
+    public long getParentDelegations() {
+        return parentDelegations.sum();
+    }
+
+    @Override
+    public long getParentDelegationNanos() {
+        return parentDelegationNanos.sum();
+    }
+}
@@ -0,0 +1,80 @@
+package fr.traqueur.bootstrap.loader;
+
+import java.util.List;
+
+/**
+ * Management interface of the class-loading counters of an {@link IsolatedClassLoader}.
+ * Registered under {@code fr.traqueur.bootstrap:type=ClassLoading,loader=<n>}.
+ */
+public interface ClassLoadingTelemetryMXBean {
+
+    /**
+     * Gets the counters of each artifact, in classpath order.
+     *
+     * @return the per-artifact counters
+     */
+    List<ArtifactTelemetry> getArtifacts();
+
+    /**
+     * Gets the paths of the artifacts that did not define any class.
+     *
+     * @return the unused artifacts
+     */
+    List<String> getUnusedArtifacts();
+
+    /**
+     * Gets the number of artifacts whose jar is currently open.
+     *
+     * @return the number of open jars
+     */
+    long getOpenArtifacts();
+
+    /**
+     * Gets the total number of classes defined from all artifacts.
+     *
+     * @return the number of classes defined
+     */
+    long getClassesDefined();
+
+    /**
+     * Gets the total number of class file bytes read from all artifacts.
+     *
+     * @return the number of bytes read
+     */
+    long getBytesRead();
+
+    /**
+     * Gets the total number of lookup misses over all artifacts.
+     *
+     * @return the number of lookup misses
+     */
+    long getLookupMisses();
+
+    /**
+     * Gets the cumulative time spent looking up and reading class files.
+     *
+     * @return the time in nanoseconds
+     */
+    long getFindClassNanos();
+
+    /**
+     * Gets the cumulative time spent defining classes.
+     *
+     * @return the time in nanoseconds
+     */
+    long getDefineClassNanos();
+
+    /**
+     * Gets the number of lookups delegated to the parent ClassLoader.
+     *
+     * @return the number of parent delegations
+     */
+    long getParentDelegations();
+
+    /**
+     * Gets the cumulative time spent in parent delegation.
+     *
+     * @return the time in nanoseconds
+     */
+    long getParentDelegationNanos();
+}
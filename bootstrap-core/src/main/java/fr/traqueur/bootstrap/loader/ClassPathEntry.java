@@ -0,0 +1,529 @@
+package fr.traqueur.bootstrap.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSigner;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * A single artifact of the {@link IsolatedClassLoader} classpath, either a jar or a class directory.
+ * Jars are opened lazily, the first time a lookup is routed to them, and may be closed again
+ * by {@link #closeIfIdle(long)} when unused; they are then reopened on the next lookup.
+ * Each entry keeps the class-loading counters of its artifact.
+ */
+final class ClassPathEntry implements AutoCloseable {
+
+    /**
+     * Size up to which a resource stream is read into memory at once; larger resources are streamed from the jar.
+     */
+    static final int BUFFERED_RESOURCE_SIZE = 1024 * 1024;
+
+    private final Path path;
+    private final URL url;
+    private final boolean directory;
+    private volatile JarFile jar;
+    private volatile SignatureCache.JarSignatures signatures;
+    private volatile long lastUsedNanos;
+    private final AtomicInteger users = new AtomicInteger();
+    private boolean closed;
+
+    private final LongAdder classesDefined = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder();
+    private final LongAdder findClassNanos = new LongAdder();
+    private final LongAdder defineClassNanos = new LongAdder();
+
+    /**
+     * Creates a new classpath entry.
+     *
+     * @param path the path to the jar file or class directory
+     * @param url  the URL of the path, used as code source location
+     */
+    ClassPathEntry(Path path, URL url) {
+        this.path = path;
+        this.url = url;
+        this.directory = Files.isDirectory(path);
+    }
+
+    /**
+     * Gets the path of this entry.
+     *
+     * @return the jar file or class directory path
+     */
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Gets the URL of this entry.
+     *
+     * @return the code source location
+     */
+    URL url() {
+        return url;
+    }
+
+    /**
+     * Reads a class file from this entry.
+     *
+     * @param entryName the class file name, e.g. "com/example/Foo.class"
+     * @return the class bytes and their signers, or null if this entry does not hold the class
+     * @throws IOException if the entry cannot be read
+     */
+    ClassBytes read(String entryName) throws IOException {
+        if (directory) {
+            Path file = path.resolve(entryName);
+            return Files.isRegularFile(file) ? new ClassBytes(Files.readAllBytes(file), null) : null;
+        }
+
+        JarFile jarFile = acquire();
+        try {
+            JarEntry entry = jarFile.getJarEntry(entryName);
+            if (entry == null) {
+                return null;
+            }
+            byte[] bytes;
+            try (InputStream is = jarFile.getInputStream(entry)) {
+                bytes = is.readAllBytes();
+            }
+            SignatureCache.JarSignatures verified = signatures;
+            if (verified != null) {
+                return new ClassBytes(bytes, verified.signersOf(entry.getRealName()));
+            }
+            // Signers are only known once the entry has been fully read
+            return new ClassBytes(bytes, entry.getCodeSigners());
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Lists the files of this entry with the given file name, in any directory.
+     *
+     * @param fileName the file name, e.g. "libfoo.so"
+     * @return the names of the matching entries, e.g. "natives/linux-x86-64/libfoo.so"
+     * @throws IOException if the entry cannot be read
+     */
+    List<String> findEntries(String fileName) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (directory) {
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(file -> file.getFileName().toString().equals(fileName) && Files.isRegularFile(file))
+                    .forEach(file -> names.add(path.relativize(file).toString().replace('\\', '/')));
+            }
+            return names;
+        }
+
+        JarFile jarFile = acquire();
+        try {
+            Enumeration<JarEntry> jarEntries = jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                String name = jarEntries.nextElement().getName();
+                if (name.equals(fileName) || name.endsWith("/" + fileName)) {
+                    names.add(name);
+                }
+            }
+            return names;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Gets a stamp identifying the content of a file of this entry without reading it:
+     * the CRC-32 and size recorded in the jar, or the size and modification time of a file.
+     *
+     * @param name the file name, e.g. "natives/linux-x86-64/libfoo.so"
+     * @return the stamp, or null if this entry does not hold the file
+     * @throws IOException if the entry cannot be read
+     */
+    String stamp(String name) throws IOException {
+        if (directory) {
+            Path file = path.resolve(name);
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            return "f" + Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis();
+        }
+
+        JarFile jarFile = acquire();
+        try {
+            JarEntry entry = jarFile.getJarEntry(name);
+            if (entry == null || entry.getCrc() < 0) {
+                return null;
+            }
+            return Long.toHexString(entry.getCrc()) + "-" + entry.getSize();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Uses signatures verified ahead of time for the classes of this jar.
+     * The jar is then opened without verification; if it is already open, it keeps its verifier
+     * until it is closed as idle, but classes are defined with the verified signers.
+     *
+     * @param signatures the verified signatures of the jar entries
+     */
+    void useSignatures(SignatureCache.JarSignatures signatures) {
+        this.signatures = signatures;
+    }
+
+    /**
+     * Finds a resource in this entry.
+     *
+     * @param name the resource name, e.g. "META-INF/services/com.example.Service"
+     * @return the resource URL, or null if this entry does not hold the resource
+     * @throws IOException if the entry cannot be read
+     */
+    URL findResource(String name) throws IOException {
+        if (directory) {
+            Path file = path.resolve(name);
+            return Files.exists(file) ? file.toUri().toURL() : null;
+        }
+
+        JarFile jarFile = acquire();
+        try {
+            JarEntry entry = jarFile.getJarEntry(name);
+            return entry != null ? resourceUrl(entry) : null;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Reads a resource of this entry into memory, and returns a URL serving the read content.
+     * Opening the URL never reads the jar again.
+     *
+     * @param name the resource name, e.g. "META-INF/services/com.example.Service"
+     * @return the resource URL, or null if this entry does not hold the resource
+     * @throws IOException if the entry cannot be read
+     */
+    URL readResource(String name) throws IOException {
+        byte[] content;
+        URL location;
+        if (directory) {
+            Path file = path.resolve(name);
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            content = Files.readAllBytes(file);
+            location = file.toUri().toURL();
+        } else {
+            JarFile jarFile = acquire();
+            try {
+                JarEntry entry = jarFile.getJarEntry(name);
+                if (entry == null || entry.isDirectory()) {
+                    return null;
+                }
+                try (InputStream is = jarFile.getInputStream(entry)) {
+                    content = is.readAllBytes();
+                }
+                location = resourceUrl(entry);
+            } finally {
+                release();
+            }
+        }
+        try {
+            return URL.of(location.toURI(), new CachedContentHandler(content));
+        } catch (URISyntaxException e) {
+            throw new MalformedURLException("Invalid resource URL " + location + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens a resource of this entry.
+     * Resources of a jar up to {@link #BUFFERED_RESOURCE_SIZE} are read into memory at once, so the jar is free
+     * to be closed as idle right away. Larger resources, or resources of unknown size, are streamed from the jar,
+     * which is then held open until the stream is closed.
+     *
+     * @param name the resource name, e.g. "models/model.bin"
+     * @return an input stream on the resource, or null if this entry does not hold the resource
+     * @throws IOException if the entry cannot be read
+     */
+    InputStream openResource(String name) throws IOException {
+        if (directory) {
+            Path file = path.resolve(name);
+            return Files.isRegularFile(file) ? Files.newInputStream(file) : null;
+        }
+
+        JarFile jarFile = acquire();
+        boolean streamed = false;
+        try {
+            JarEntry entry = jarFile.getJarEntry(name);
+            if (entry == null || entry.isDirectory()) {
+                return null;
+            }
+            long size = entry.getSize();
+            if (size >= 0 && size <= BUFFERED_RESOURCE_SIZE) {
+                try (InputStream is = jarFile.getInputStream(entry)) {
+                    return new ByteArrayInputStream(is.readAllBytes());
+                }
+            }
+            InputStream stream = new ReleasingInputStream(jarFile.getInputStream(entry));
+            streamed = true;
+            return stream;
+        } finally {
+            if (!streamed) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Builds the URL of a jar resource, in the same form as URLClassLoader.
+     * In multi-release jars, the URL points to the versioned entry selected for the runtime version.
+     *
+     * @param entry the jar entry
+     * @return the resource URL
+     * @throws MalformedURLException if the entry name cannot be encoded
+     */
+    private URL resourceUrl(JarEntry entry) throws MalformedURLException {
+        try {
+            return URI.create("jar:" + url + "!/" + new URI(null, null, entry.getRealName(), null).getRawPath()).toURL();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new MalformedURLException("Invalid resource name " + entry.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a class lookup in this entry.
+     *
+     * @param startNanos the {@link System#nanoTime()} at which the lookup started
+     * @param classBytes the class read, or null on a miss
+     */
+    void recordRead(long startNanos, ClassBytes classBytes) {
+        findClassNanos.add(System.nanoTime() - startNanos);
+        if (classBytes == null) {
+            lookupMisses.increment();
+        } else {
+            bytesRead.add(classBytes.bytes().length);
+        }
+    }
+
+    /**
+     * Records a class defined from this entry.
+     *
+     * @param startNanos the {@link System#nanoTime()} at which the definition started
+     */
+    void recordDefine(long startNanos) {
+        defineClassNanos.add(System.nanoTime() - startNanos);
+        classesDefined.increment();
+    }
+
+    /**
+     * Gets the current class-loading counters of this entry.
+     *
+     * @return the counters
+     */
+    ArtifactTelemetry telemetry() {
+        return new ArtifactTelemetry(path.toString(), classesDefined.sum(), bytesRead.sum(), lookupMisses.sum(),
+            findClassNanos.sum(), defineClassNanos.sum(), isOpen());
+    }
+
+    /**
+     * Gets the manifest of this entry.
+     *
+     * @return the jar manifest, or null for directories and jars without manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    Manifest manifest() throws IOException {
+        if (directory) {
+            return null;
+        }
+        JarFile jarFile = acquire();
+        try {
+            return jarFile.getManifest();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Checks whether the jar of this entry is currently open.
+     *
+     * @return true if the jar is open
+     */
+    boolean isOpen() {
+        return jar != null;
+    }
+
+    /**
+     * Closes the jar of this entry if it has not been used for the specified time.
+     * The jar is reopened transparently on the next lookup.
+     *
+     * @param idleNanos the minimum idle time before closing, in nanoseconds
+     * @return true if the jar was closed
+     * @throws IOException if the jar cannot be closed
+     */
+    synchronized boolean closeIfIdle(long idleNanos) throws IOException {
+        JarFile current = jar;
+        if (current == null || users.get() > 0 || System.nanoTime() - lastUsedNanos < idleNanos) {
+            return false;
+        }
+        jar = null;
+        // A reader may have acquired the jar before it was cleared
+        if (users.get() > 0) {
+            jar = current;
+            return false;
+        }
+        current.close();
+        return true;
+    }
+
+    /**
+     * Acquires the jar file for a read, opening it if needed.
+     * Every call must be followed by {@link #release()}.
+     *
+     * @return the jar file
+     * @throws IOException if the jar cannot be opened
+     */
+    private JarFile acquire() throws IOException {
+        users.incrementAndGet();
+        try {
+            JarFile current = jar();
+            lastUsedNanos = System.nanoTime();
+            return current;
+        } catch (IOException | RuntimeException e) {
+            users.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the jar file acquired by {@link #acquire()}.
+     */
+    private void release() {
+        users.decrementAndGet();
+    }
+
+    /**
+     * Gets the opened jar file, opening it on first use.
+     *
+     * @return the jar file
+     * @throws IOException if the jar cannot be opened
+     */
+    private JarFile jar() throws IOException {
+        JarFile current = jar;
+        if (current == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("Class loader closed: " + path);
+                }
+                current = jar;
+                if (current == null) {
+                    // Signatures verified ahead of time make per-entry verification redundant
+                    boolean verify = signatures == null;
+                    current = new JarFile(path.toFile(), verify, ZipFile.OPEN_READ, JarFile.runtimeVersion());
+                    jar = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        JarFile current = jar;
+        jar = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Serves a resource content read once into memory.
+     */
+    private static final class CachedContentHandler extends URLStreamHandler {
+
+        private final byte[] content;
+
+        /**
+         * Creates a handler serving the specified content.
+         *
+         * @param content the resource content
+         */
+        private CachedContentHandler(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) {
+            return new URLConnection(url) {
+                @Override
+                public void connect() {
+                    connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(content);
+                }
+
+                @Override
+                public long getContentLengthLong() {
+                    return content.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * Streams a resource from the jar, and releases the jar once closed.
+     */
+    private final class ReleasingInputStream extends FilterInputStream {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Creates a stream holding the jar until closed.
+         *
+         * @param in the stream of the jar entry
+         */
+        private ReleasingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    lastUsedNanos = System.nanoTime();
+                    release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Bytes of a class file and the signers that signed it.
+     *
+     * @param bytes   the class file content
+     * @param signers the code signers, or null if unsigned
+     */
+    record ClassBytes(byte[] bytes, CodeSigner[] signers) {
+    }
+}
@@ -1,9 +1,29 @@
 package fr.traqueur.bootstrap.loader;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.CodeSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Manifest;
 
 /**
  * A child-first ClassLoader that prioritizes loading classes from dynamic dependencies.
@@ -19,9 +39,33 @@ import java.util.List;
  * <p>This differs from the default parent-first strategy and is necessary because
  * application classes loaded by the AppClassLoader need to resolve types from
  * dynamic dependencies when they are used as field types or method parameters.</p>
+ *
+ * <p>When a package index is provided, class lookups are routed: a class is only searched in
+ * the artifacts known to hold its package, plus the artifacts missing from the index, in classpath order.
+ * Jars that never serve a class are never opened.</p>
+ *
+ * <p>Resource lookups are routed the same way with a resource-name index, and service-provider files
+ * ({@code META-INF/services/}) are read from every jar once and then served from memory.</p>
+ *
+ * <p>Classes and resources are read through lazily opened jars, never through the URLClassLoader
+ * classpath, so only the jars a lookup reaches hold a file descriptor and native memory. With
+ * {@link #enableIdleClose(Duration)}, jars that stay unused are closed again.</p>
+ *
+ * <p>With {@link #useSignatureCache(SignatureCache)}, signed jars are verified once and then opened
+ * without per-entry verification, their classes being defined with the cached signers.</p>
+ *
+ * <p>With {@link #useNativeLibraryCache(NativeLibraryCache)}, native libraries bundled in the jars are
+ * found by {@code System.loadLibrary}, extracted once into the cache.</p>
+ *
+ * <p>Class-loading counters are kept for each artifact (classes defined, bytes read, lookup misses, time
+ * spent in {@code findClass} and {@code defineClass}) and for parent delegation, see {@link #telemetry()}.</p>
  */
 public class IsolatedClassLoader extends URLClassLoader {
 
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
     private static final String[] PARENT_FIRST_PACKAGES = {
         "java.",
         "javax.",
@@ -36,13 +80,143 @@ public class IsolatedClassLoader extends URLClassLoader {
         "fr.traqueur.bootstrap.BootstrapLoader"
     };
 
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private final List<ClassPathEntry> entries;
+    private final ClassPathEntry[] allEntries;
+    private final Map<String, ClassPathEntry[]> routes;
+    private final ClassPathEntry[] unindexed;
+    private final Map<String, ClassPathEntry[]> resourceRoutes;
+    private final ClassPathEntry[] unindexedResources;
+    private final Set<ClassPathEntry> unindexedResourceEntries;
+    private final Map<String, List<URL>> serviceFiles = new ConcurrentHashMap<>();
+    private final Map<String, Optional<String>> libraries = new ConcurrentHashMap<>();
+    private volatile Map<String, Map<ClassPathEntry, List<String>>> libraryFiles;
+    private final ClassLoadingTelemetry telemetry;
+    private volatile ScheduledExecutorService idleCloser;
+    private volatile NativeLibraryCache nativeLibraryCache;
+
     /**
      * Creates a new isolated ClassLoader with the specified artifact paths.
      *
      * @param artifacts the paths to JAR files to include in this ClassLoader
      */
     public IsolatedClassLoader(List<Path> artifacts) {
-        super(toUrls(artifacts), IsolatedClassLoader.class.getClassLoader());
+        this(artifacts, Map.of());
+    }
+
+    /**
+     * Creates a new isolated ClassLoader with the specified artifact paths and package index.
+     * Artifacts absent from the index are searched for every class, as without index.
+     *
+     * @param artifacts    the paths to JAR files to include in this ClassLoader
+     * @param packageIndex the packages held by each artifact, keyed by artifact path; may be empty
+     */
+    public IsolatedClassLoader(List<Path> artifacts, Map<Path, ? extends Collection<String>> packageIndex) {
+        this(artifacts, packageIndex, Map.of());
+    }
+
+    /**
+     * Creates a new isolated ClassLoader with the specified artifact paths, package index and resource index.
+     * Artifacts absent from an index are searched for every class or resource, as without index.
+     *
+     * @param artifacts     the paths to JAR files to include in this ClassLoader
+     * @param packageIndex  the packages held by each artifact, keyed by artifact path; may be empty
+     * @param resourceIndex the names of the non-class entries of each artifact, keyed by artifact path; may be empty
+     */
+    public IsolatedClassLoader(List<Path> artifacts, Map<Path, ? extends Collection<String>> packageIndex,
+                               Map<Path, ? extends Collection<String>> resourceIndex) {
+        this(artifacts, packageIndex, resourceIndex, IsolatedClassLoader.class.getClassLoader());
+    }
+
+    /**
+     * Creates a new isolated ClassLoader layered on another ClassLoader, such as a plugin loader
+     * on top of the application loader.
+     *
+     * @param artifacts the paths to JAR files to include in this ClassLoader
+     * @param parent    the parent ClassLoader, searched after the artifacts
+     */
+    public IsolatedClassLoader(List<Path> artifacts, ClassLoader parent) {
+        this(artifacts, Map.of(), Map.of(), parent);
+    }
+
+    /**
+     * Creates a new isolated ClassLoader with the specified artifact paths, indexes and parent.
+     *
+     * @param artifacts     the paths to JAR files to include in this ClassLoader
+     * @param packageIndex  the packages held by each artifact, keyed by artifact path; may be empty
+     * @param resourceIndex the names of the non-class entries of each artifact, keyed by artifact path; may be empty
+     * @param parent        the parent ClassLoader, searched after the artifacts
+     */
+    public IsolatedClassLoader(List<Path> artifacts, Map<Path, ? extends Collection<String>> packageIndex,
+                               Map<Path, ? extends Collection<String>> resourceIndex, ClassLoader parent) {
+        this(artifacts, toUrls(artifacts), packageIndex, resourceIndex, parent);
+    }
+
+    /**
+     * Creates a new isolated ClassLoader from artifact paths and their URLs, so that the URLClassLoader
+     * and the classpath entries share the same URLs.
+     *
+     * @param artifacts     the paths to JAR files to include in this ClassLoader
+     * @param urls          the URLs of the artifacts, in the same order
+     * @param packageIndex  the packages held by each artifact, keyed by artifact path; may be empty
+     * @param resourceIndex the names of the non-class entries of each artifact, keyed by artifact path; may be empty
+     * @param parent        the parent ClassLoader, searched after the artifacts
+     */
+    private IsolatedClassLoader(List<Path> artifacts, URL[] urls, Map<Path, ? extends Collection<String>> packageIndex,
+                                Map<Path, ? extends Collection<String>> resourceIndex, ClassLoader parent) {
+        super(urls, parent);
+
+        List<ClassPathEntry> classPath = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            classPath.add(new ClassPathEntry(artifacts.get(i), urls[i]));
+        }
+
+        this.entries = List.copyOf(classPath);
+        this.allEntries = classPath.toArray(ClassPathEntry[]::new);
+        this.telemetry = new ClassLoadingTelemetry(entries);
+
+        List<ClassPathEntry> unindexedEntries = new ArrayList<>();
+        this.routes = route(classPath, packageIndex, new HashMap<>(), unindexedEntries);
+        this.unindexed = unindexedEntries.toArray(ClassPathEntry[]::new);
+
+        unindexedEntries.clear();
+        this.resourceRoutes = route(classPath, resourceIndex, new HashMap<>(), unindexedEntries);
+        this.unindexedResources = unindexedEntries.toArray(ClassPathEntry[]::new);
+        this.unindexedResourceEntries = Set.of(unindexedResources);
+    }
+
+    /**
+     * Builds per-key candidate lists from an index, keeping classpath order.
+     * Entries absent from the index are candidates for every key.
+     *
+     * @param classPath  the classpath entries, in classpath order
+     * @param index      the keys held by each artifact, keyed by artifact path
+     * @param candidates an empty map receiving the candidate lists
+     * @param unindexed  an empty list receiving the entries absent from the index
+     * @return the candidates of each key
+     */
+    private static Map<String, ClassPathEntry[]> route(List<ClassPathEntry> classPath, Map<Path, ? extends Collection<String>> index,
+                                                       Map<String, List<ClassPathEntry>> candidates, List<ClassPathEntry> unindexed) {
+        Map<Path, Collection<String>> normalizedIndex = new HashMap<>();
+        index.forEach((path, keys) -> {
+            normalizedIndex.put(normalize(path), keys);
+            keys.forEach(key -> candidates.putIfAbsent(key, new ArrayList<>()));
+        });
+
+        for (ClassPathEntry entry : classPath) {
+            Collection<String> keys = normalizedIndex.get(normalize(entry.path()));
+            if (keys == null) {
+                unindexed.add(entry);
+                candidates.values().forEach(list -> list.add(entry));
+            } else {
+                keys.forEach(key -> candidates.get(key).add(entry));
+            }
+        }
+
+        Map<String, ClassPathEntry[]> routes = new HashMap<>(candidates.size());
+        candidates.forEach((key, list) -> routes.put(key, list.toArray(ClassPathEntry[]::new)));
+        return routes;
     }
 
     /**
@@ -74,31 +248,488 @@ public class IsolatedClassLoader extends URLClassLoader {
      */
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        // Check if class is already loaded
-        Class<?> loadedClass = findLoadedClass(name);
-        if (loadedClass != null) {
-            if (resolve) {
-                resolveClass(loadedClass);
+        // For system packages, always delegate to parent first
+        if (isParentFirstPackage(name)) {
+            long start = System.nanoTime();
+            try {
+                return super.loadClass(name, resolve);
+            } finally {
+                telemetry.recordParentDelegation(start);
             }
-            return loadedClass;
         }
 
-        // For system packages, always delegate to parent first
-        if (isParentFirstPackage(name)) {
-            return super.loadClass(name, resolve);
+        synchronized (getClassLoadingLock(name)) {
+            // Check if class is already loaded
+            Class<?> loadedClass = findLoadedClass(name);
+            if (loadedClass != null) {
+                if (resolve) {
+                    resolveClass(loadedClass);
+                }
+                return loadedClass;
+            }
+
+            // Child-first: try to load from our URLs first
+            try {
+                loadedClass = findClass(name);
+                if (resolve) {
+                    resolveClass(loadedClass);
+                }
+                return loadedClass;
+            } catch (ClassNotFoundException e) {
+                // Not found in our URLs, delegate to parent
+                long start = System.nanoTime();
+                try {
+                    loadedClass = getParent().loadClass(name);
+                } finally {
+                    telemetry.recordParentDelegation(start);
+                }
+                if (resolve) {
+                    resolveClass(loadedClass);
+                }
+                return loadedClass;
+            }
+        }
+    }
+
+    /**
+     * Finds a class in the dynamic dependencies.
+     * With a package index, only the artifacts that may hold the class package are searched.
+     *
+     * @param name the binary name of the class
+     * @return the resulting Class object
+     * @throws ClassNotFoundException if the class could not be found
+     */
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String packageName = packageName(name);
+        String entryName = name.replace('.', '/').concat(".class");
+        IOException failure = null;
+        for (ClassPathEntry entry : candidates(entryName)) {
+            try {
+                long start = System.nanoTime();
+                ClassPathEntry.ClassBytes classBytes = entry.read(entryName);
+                entry.recordRead(start, classBytes);
+                if (classBytes != null) {
+                    return defineClass(name, packageName, entry, classBytes);
+                }
+            } catch (IOException e) {
+                // Unreadable jar, as URLClassLoader: skip it, a later jar may hold the class
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw new ClassNotFoundException(name, failure);
+    }
+
+    /**
+     * Defines a class read from a classpath entry, defining its package first if needed.
+     *
+     * @param name        the binary name of the class
+     * @param packageName the package of the class
+     * @param entry       the classpath entry the class was read from
+     * @param classBytes  the class bytes and signers
+     * @return the defined class
+     * @throws IOException if the entry manifest cannot be read
+     */
+    private Class<?> defineClass(String name, String packageName, ClassPathEntry entry,
+                                 ClassPathEntry.ClassBytes classBytes) throws IOException {
+        if (!packageName.isEmpty() && getDefinedPackage(packageName) == null) {
+            try {
+                Manifest manifest = entry.manifest();
+                if (manifest != null) {
+                    definePackage(packageName, manifest, entry.url());
+                } else {
+                    definePackage(packageName, null, null, null, null, null, null, null);
+                }
+            } catch (IllegalArgumentException e) {
+                // Package defined concurrently by another class of the same package
+            }
+        }
+        byte[] bytes = classBytes.bytes();
+        long start = System.nanoTime();
+        Class<?> clazz = defineClass(name, bytes, 0, bytes.length, new CodeSource(entry.url(), classBytes.signers()));
+        entry.recordDefine(start);
+        return clazz;
+    }
+
+    /**
+     * Finds a resource in the dynamic dependencies, in classpath order.
+     * Only the artifacts that may hold the resource are searched.
+     *
+     * @param name the resource name
+     * @return the resource URL, or null if not found
+     */
+    @Override
+    public URL findResource(String name) {
+        if (name.startsWith(SERVICES_PREFIX)) {
+            List<URL> urls = serviceFiles(name);
+            return urls.isEmpty() ? null : urls.getFirst();
+        }
+        for (ClassPathEntry entry : candidates(name)) {
+            try {
+                URL url = entry.findResource(name);
+                if (url != null) {
+                    return url;
+                }
+            } catch (IOException e) {
+                // Unreadable jar, as URLClassLoader: skip it
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds all resources with the given name in the dynamic dependencies, in classpath order.
+     * Only the artifacts that may hold the resource are searched.
+     *
+     * @param name the resource name
+     * @return the resource URLs
+     */
+    @Override
+    public Enumeration<URL> findResources(String name) {
+        if (name.startsWith(SERVICES_PREFIX)) {
+            return Collections.enumeration(serviceFiles(name));
+        }
+        List<URL> urls = new ArrayList<>();
+        for (ClassPathEntry entry : candidates(name)) {
+            try {
+                URL url = entry.findResource(name);
+                if (url != null) {
+                    urls.add(url);
+                }
+            } catch (IOException e) {
+                // Unreadable jar, as URLClassLoader: skip it
+            }
+        }
+        return Collections.enumeration(urls);
+    }
+
+    /**
+     * Opens a resource, from the parent ClassLoader first and then from the dynamic dependencies.
+     * Resources of the dependencies are read through the classpath entries rather than through their
+     * {@code jar:} URL: the JDK would open the jar a second time and keep it in its jar cache, out of reach
+     * of the idle timeout and of {@link #close()}. Small resources are read into memory; larger ones are
+     * streamed from the jar, which stays open until the stream is closed.
+     *
+     * @param name the resource name
+     * @return an input stream on the resource, or null if not found
+     */
+    @Override
+    public InputStream getResourceAsStream(String name) {
+        Objects.requireNonNull(name);
+        ClassLoader parent = getParent();
+        if (parent == null) {
+            // Resources of the bootstrap ClassLoader are only reachable through the default lookup
+            return super.getResourceAsStream(name);
+        }
+        try {
+            URL url = parent.getResource(name);
+            if (url == null && name.startsWith(SERVICES_PREFIX)) {
+                url = findResource(name);
+            }
+            if (url != null) {
+                return url.openStream();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        for (ClassPathEntry entry : candidates(name)) {
+            try {
+                InputStream stream = entry.openResource(name);
+                if (stream != null) {
+                    return stream;
+                }
+            } catch (IOException e) {
+                // Unreadable jar, as URLClassLoader: skip it
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the service-provider files with the given name, in classpath order.
+     * They are read from every jar on first use and served from memory afterwards.
+     *
+     * @param name the service-provider file name, e.g. "META-INF/services/com.example.Service"
+     * @return the URLs of the cached service-provider files
+     */
+    private List<URL> serviceFiles(String name) {
+        return serviceFiles.computeIfAbsent(name, fileName -> {
+            List<URL> urls = new ArrayList<>();
+            for (ClassPathEntry entry : candidates(fileName)) {
+                try {
+                    URL url = entry.readResource(fileName);
+                    if (url != null) {
+                        urls.add(url);
+                    }
+                } catch (IOException e) {
+                    // Unreadable jar, as URLClassLoader: skip it
+                }
+            }
+            return List.copyOf(urls);
+        });
+    }
+
+    /**
+     * Finds a native library bundled in the dynamic dependencies, extracted through the native library cache.
+     * Without cache, native libraries are only searched in {@code java.library.path}, as with URLClassLoader.
+     *
+     * @param libname the library name, as given to {@code System.loadLibrary}
+     * @return the absolute path of the extracted library, or null if no jar holds it for this platform
+     */
+    @Override
+    protected String findLibrary(String libname) {
+        NativeLibraryCache cache = nativeLibraryCache;
+        if (cache == null) {
+            return super.findLibrary(libname);
+        }
+        return libraries.computeIfAbsent(libname, name -> {
+            String fileName = System.mapLibraryName(name);
+            Map<ClassPathEntry, List<String>> indexed = libraryFiles().getOrDefault(fileName, Map.of());
+            List<ClassPathEntry> holders = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (ClassPathEntry entry : entries) {
+                for (String entryName : libraryEntries(entry, fileName, indexed)) {
+                    holders.add(entry);
+                    names.add(entryName);
+                }
+            }
+            int selected = cache.select(names);
+            if (selected < 0) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(cache.extract(holders.get(selected), names.get(selected)).toAbsolutePath().toString());
+            } catch (IOException e) {
+                System.err.println("[Bootstrap] Warning: Could not extract native library " + names.get(selected)
+                    + " from " + holders.get(selected).path() + ": " + e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Lists the files of a classpath entry with the file name of a native library.
+     * Indexed jars are searched in the resource index, only unindexed ones are opened.
+     *
+     * @param entry    the classpath entry
+     * @param fileName the platform file name of the library, e.g. "libfoo.so"
+     * @param indexed  the indexed files with that file name, by classpath entry
+     * @return the entry names of the matching files
+     */
+    private List<String> libraryEntries(ClassPathEntry entry, String fileName, Map<ClassPathEntry, List<String>> indexed) {
+        if (unindexedResourceEntries.contains(entry)) {
+            try {
+                return entry.findEntries(fileName);
+            } catch (IOException e) {
+                // Unreadable jar, as URLClassLoader: skip it
+                return List.of();
+            }
+        }
+        return indexed.getOrDefault(entry, List.of());
+    }
+
+    /**
+     * Gets the native libraries of the resource index, grouped by file name, building the map on first use.
+     * A library lookup is then one map access per jar, instead of a scan of every indexed resource.
+     *
+     * @return the entry names of the indexed libraries, keyed by file name and then by classpath entry
+     */
+    private Map<String, Map<ClassPathEntry, List<String>>> libraryFiles() {
+        Map<String, Map<ClassPathEntry, List<String>>> files = libraryFiles;
+        if (files != null) {
+            return files;
+        }
+        String mapped = System.mapLibraryName("");
+        String suffix = mapped.substring(mapped.lastIndexOf('.'));
+        files = new HashMap<>();
+        for (Map.Entry<String, ClassPathEntry[]> route : resourceRoutes.entrySet()) {
+            String name = route.getKey();
+            if (!name.endsWith(suffix)) {
+                continue;
+            }
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            for (ClassPathEntry entry : route.getValue()) {
+                // Unindexed entries are candidates for every name, they are searched directly
+                if (!unindexedResourceEntries.contains(entry)) {
+                    files.computeIfAbsent(fileName, key -> new HashMap<>())
+                        .computeIfAbsent(entry, key -> new ArrayList<>())
+                        .add(name);
+                }
+            }
+        }
+        // Same order on every start, whatever the order of the index
+        files.values().forEach(byEntry -> byEntry.values().forEach(Collections::sort));
+        libraryFiles = files;
+        return files;
+    }
+
+    /**
+     * Serves the native libraries bundled in the jars through a persistent extraction cache,
+     * instead of searching them only in {@code java.library.path}.
+     *
+     * @param cache the native library cache
+     */
+    public void useNativeLibraryCache(NativeLibraryCache cache) {
+        this.nativeLibraryCache = cache;
+        libraries.clear();
+    }
+
+    /**
+     * Gets the entries that may hold a class file or resource, in classpath order.
+     * Class files are routed by package, other entries by name; directories are not indexed.
+     *
+     * @param entryName the entry name, e.g. "com/example/Foo.class"
+     * @return the candidate entries
+     */
+    private ClassPathEntry[] candidates(String entryName) {
+        if (entryName.endsWith("/")) {
+            return allEntries;
+        }
+        int slash = entryName.lastIndexOf('/');
+        if (slash > 0 && entryName.endsWith(".class") && !entryName.startsWith("META-INF/")) {
+            return routes.getOrDefault(entryName.substring(0, slash).replace('/', '.'), unindexed);
+        }
+        return resourceRoutes.getOrDefault(entryName, unindexedResources);
+    }
+
+    /**
+     * Closes the jars that have not been used for the specified time.
+     * Closed jars are reopened transparently on the next lookup.
+     *
+     * @param idleTimeout the minimum idle time before closing a jar
+     * @return the number of jars closed
+     */
+    public int closeIdleJars(Duration idleTimeout) {
+        int closedJars = 0;
+        for (ClassPathEntry entry : entries) {
+            try {
+                if (entry.closeIfIdle(idleTimeout.toNanos())) {
+                    closedJars++;
+                }
+            } catch (IOException e) {
+                System.err.println("[Bootstrap] Warning: Could not close idle jar " + entry.path() + ": " + e.getMessage());
+            }
+        }
+        return closedJars;
+    }
+
+    /**
+     * Periodically closes the jars that have not been used for the specified time,
+     * until this ClassLoader is closed.
+     *
+     * @param idleTimeout the minimum idle time before closing a jar
+     */
+    public synchronized void enableIdleClose(Duration idleTimeout) {
+        if (idleCloser != null) {
+            idleCloser.shutdownNow();
+        }
+        idleCloser = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap-jar-idle-close");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = Math.max(1000, idleTimeout.toMillis() / 2);
+        idleCloser.scheduleWithFixedDelay(() -> closeIdleJars(idleTimeout), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Verifies the signatures of the jars once through a persistent cache, and defines their classes
+     * with the cached signers instead of verifying every entry on each start.
+     * Must be called before classes are loaded. Jars failing verification keep the default verification.
+     *
+     * @param cache the signature cache
+     * @return the number of signed jars
+     */
+    public int useSignatureCache(SignatureCache cache) {
+        int signedJars = 0;
+        for (ClassPathEntry entry : entries) {
+            if (Files.isDirectory(entry.path())) {
+                continue;
+            }
+            try {
+                SignatureCache.JarSignatures signatures = cache.lookup(entry.path());
+                entry.useSignatures(signatures);
+                if (signatures.isSigned()) {
+                    signedJars++;
+                }
+            } catch (IOException | SecurityException e) {
+                System.err.println("[Bootstrap] Warning: Could not verify signatures of " + entry.path() + ": " + e.getMessage());
+            }
+        }
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.err.println("[Bootstrap] Warning: Could not save signature cache: " + e.getMessage());
         }
+        return signedJars;
+    }
+
+    /**
+     * Gets the class-loading counters of this ClassLoader.
+     *
+     * @return the telemetry, also usable as a JMX MBean
+     */
+    public ClassLoadingTelemetry telemetry() {
+        return telemetry;
+    }
 
-        // Child-first: try to load from our URLs first
+    /**
+     * Closes this ClassLoader and every jar it opened, and unregisters its telemetry MBean.
+     *
+     * @throws IOException if a jar cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService closer = idleCloser;
+        if (closer != null) {
+            closer.shutdownNow();
+        }
         try {
-            loadedClass = findClass(name);
-            if (resolve) {
-                resolveClass(loadedClass);
+            telemetry.unregister();
+        } catch (JMException e) {
+            System.err.println("[Bootstrap] Warning: Could not unregister class-loading telemetry MBean: " + e.getMessage());
+        }
+        IOException failure = null;
+        for (ClassPathEntry entry : entries) {
+            try {
+                entry.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
             }
-            return loadedClass;
-        } catch (ClassNotFoundException e) {
-            // Not found in our URLs, delegate to parent
-            return super.loadClass(name, resolve);
         }
+        super.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Gets the package of a class.
+     *
+     * @param className the binary name of the class
+     * @return the package name, or an empty string for the unnamed package
+     */
+    private static String packageName(String className) {
+        int index = className.lastIndexOf('.');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    /**
+     * Normalizes a path for index lookups.
+     *
+     * @param path the path to normalize
+     * @return the absolute, normalized path
+     */
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
     }
 
     /**
@@ -115,4 +746,23 @@ public class IsolatedClassLoader extends URLClassLoader {
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if a package holds classes that are loaded parent-first.
+     * Used by {@link ModuleLayerFactory} to keep the same delegation as this ClassLoader.
+     *
+     * @param packageName the package name to check
+     * @return true if at least one class of the package is loaded from parent first
+     */
+    static boolean isParentFirstPackageName(String packageName) {
+        for (String prefix : PARENT_FIRST_PACKAGES) {
+            boolean matches = prefix.endsWith(".")
+                ? (packageName + ".").startsWith(prefix)
+                : packageName.equals(packageName(prefix));
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -3,13 +3,90 @@ package fr.traqueur.bootstrap.loader;
 import fr.traqueur.bootstrap.BootstrapApplication;
 import fr.traqueur.bootstrap.BootstrapEntrypoint;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * Context object provided to {@link BootstrapEntrypoint} callbacks.
  * This context provides access to the isolated ClassLoader and utility methods.
- * @param classLoader the isolated ClassLoader containing dynamic dependencies
+ *
+ * <p>Exactly one of {@code classLoader} and {@code layer} is set, depending on the loading mode.
+ * Class-loading telemetry, jar idle close, the signature cache and the native library cache are
+ * features of the isolated ClassLoader, and are inactive in module layer mode.</p>
+ *
+ * @param classLoader the isolated ClassLoader containing dynamic dependencies, or null in module layer mode
+ * @param layer       the module layer containing dynamic dependencies, or null in ClassLoader mode
+ * @param resolver    the long-lived resolver attaching extra dependencies at runtime, or null if unavailable
  * @param args        the command line arguments
  */
-public record LoaderContext(IsolatedClassLoader classLoader, String[] args) {
+public record LoaderContext(IsolatedClassLoader classLoader, ModuleLayer layer, RuntimeResolver resolver, String[] args) {
+
+    /**
+     * Validates that exactly one loading mode is set.
+     */
+    public LoaderContext {
+        if ((classLoader == null) == (layer == null)) {
+            throw new IllegalArgumentException("Exactly one of classLoader and layer must be set");
+        }
+    }
+
+    /**
+     * Creates a context for the isolated ClassLoader mode.
+     *
+     * @param classLoader the isolated ClassLoader containing dynamic dependencies
+     * @param args        the command line arguments
+     */
+    public LoaderContext(IsolatedClassLoader classLoader, String[] args) {
+        this(classLoader, null, null, args);
+    }
+
+    /**
+     * Creates a context for the module layer mode.
+     *
+     * @param layer the module layer containing dynamic dependencies
+     * @param args  the command line arguments
+     */
+    public LoaderContext(ModuleLayer layer, String[] args) {
+        this(null, layer, null, args);
+    }
+
+    /**
+     * Gets the ClassLoader that loads the application and its dynamic dependencies.
+     * This is the isolated ClassLoader, or the loader of the module layer.
+     *
+     * @return the application ClassLoader
+     */
+    public ClassLoader loader() {
+        if (classLoader != null) {
+            return classLoader;
+        }
+        return layer.modules().iterator().next().getClassLoader();
+    }
+
+    /**
+     * Gets the ClassLoaders of the module layer.
+     * In ClassLoader mode, this is the isolated ClassLoader alone.
+     *
+     * @return the distinct ClassLoaders of the loaded modules
+     */
+    public Set<ClassLoader> loaders() {
+        if (classLoader != null) {
+            return Set.of(classLoader);
+        }
+        Set<ClassLoader> loaders = new LinkedHashSet<>();
+        layer.modules().forEach(module -> loaders.add(module.getClassLoader()));
+        return loaders;
+    }
+
+    /**
+     * Takes a snapshot of the class-loading counters of the isolated ClassLoader.
+     * Module layer loaders are not instrumented, and no telemetry MBean is registered for them.
+     *
+     * @return the per-artifact class-loading counters, or null in module layer mode
+     */
+    public ClassLoadingSnapshot telemetry() {
+        return classLoader != null ? classLoader.telemetry().snapshot() : null;
+    }
 
     /**
      * Creates an instance of the specified class using the isolated ClassLoader.
@@ -40,7 +117,7 @@ public record LoaderContext(IsolatedClassLoader classLoader, String[] args) {
     }
 
     /**
-     * Loads a class by name using the isolated ClassLoader.
+     * Loads a class by name using the isolated ClassLoader, or the module layer loader.
      *
      * @param className the fully qualified class name
      * @return the loaded class
@@ -48,9 +125,9 @@ public record LoaderContext(IsolatedClassLoader classLoader, String[] args) {
      */
     @SuppressWarnings("unchecked")
     public Class<BootstrapApplication> loadClass(String className) throws ClassNotFoundException {
-        Class<?> clazz = classLoader.loadClass(className);
+        Class<?> clazz = loader().loadClass(className);
         if (BootstrapApplication.class.isAssignableFrom(clazz))
             return (Class<BootstrapApplication>) clazz;
         throw new ClassNotFoundException(className);
     }
-}
\ No newline at end of file
+}
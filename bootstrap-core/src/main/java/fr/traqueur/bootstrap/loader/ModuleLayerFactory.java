@@ -0,0 +1,235 @@
+package fr.traqueur.bootstrap.loader;
+
+import fr.traqueur.bootstrap.BootstrapApplication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.module.Configuration;
+import java.lang.module.FindException;
+import java.lang.module.ModuleDescriptor;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.lang.module.ResolutionException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds a child {@link ModuleLayer} from resolved artifacts, as an alternative to {@link IsolatedClassLoader}.
+ *
+ * <p>Each artifact becomes a module: modular jars keep their descriptor, and non-modular jars become
+ * automatic modules. All modules are defined to a single ClassLoader, which maps every package to its
+ * module once, instead of scanning the classpath on each lookup. Classes of packages outside the layer
+ * are delegated to the parent ClassLoader.</p>
+ *
+ * <p>To keep the delegation of {@link IsolatedClassLoader}, parent-first packages of the bootstrap library
+ * (bundled in the application JAR) or already defined by the parent are left out of automatic modules.
+ * A layer cannot hold a package in two modules, so packages already held by an earlier module, such as
+ * the libraries bundled in the application JAR, are left out of later automatic modules: the first jar
+ * on the classpath wins, as with a ClassLoader. This only holds when the earlier module has every class
+ * of the package that the later one has, since a layer maps whole packages and not classes: otherwise
+ * the layer is rejected.</p>
+ *
+ * <p>When two jars derive the same automatic module name, the later one is renamed; when two explicit
+ * modules share a name, the first one on the classpath wins.</p>
+ */
+public final class ModuleLayerFactory {
+
+    private ModuleLayerFactory() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Creates a module layer containing the specified artifacts.
+     *
+     * @param artifacts the paths to JAR files to include in the layer, in classpath order
+     * @param parent    the parent ClassLoader for packages outside the layer
+     * @return the module layer, child of the boot layer
+     * @throws FindException if an artifact cannot be read as a module
+     * @throws ResolutionException if the modules cannot be resolved together, e.g. when a package is split
+     *                             between jars holding different classes of it
+     * @throws UncheckedIOException if the content of a jar holding a split package cannot be listed
+     * @throws LayerInstantiationException if the layer cannot be created
+     */
+    public static ModuleLayer create(List<Path> artifacts, ClassLoader parent) {
+        Set<String> bootPackages = ModuleLayer.boot().modules().stream()
+            .flatMap(module -> module.getPackages().stream())
+            .collect(Collectors.toSet());
+
+        Map<String, ModuleReference> references = new LinkedHashMap<>();
+        Map<String, ModuleReference> packageOwners = new HashMap<>();
+        Map<ModuleReference, List<String>> contents = new HashMap<>();
+        for (Path artifact : artifacts) {
+            for (ModuleReference reference : ModuleFinder.of(artifact).findAll()) {
+                ModuleDescriptor descriptor = reference.descriptor();
+                if (!descriptor.isAutomatic()) {
+                    if (references.putIfAbsent(descriptor.name(), reference) != null) {
+                        System.err.println("[Bootstrap] Warning: Duplicate module " + descriptor.name() + " ignored: " + artifact);
+                    } else {
+                        descriptor.packages().forEach(packageName -> packageOwners.putIfAbsent(packageName, reference));
+                    }
+                    continue;
+                }
+
+                String name = descriptor.name();
+                for (int i = 2; references.containsKey(name); i++) {
+                    name = descriptor.name() + "_" + i;
+                }
+                Set<String> excluded = new HashSet<>();
+                for (String packageName : descriptor.packages()) {
+                    ModuleReference owner = packageOwners.get(packageName);
+                    if (owner != null) {
+                        // The earlier jar wins, unless it lacks classes of the package that would become unreachable
+                        if (!classes(owner, packageName, contents).containsAll(classes(reference, packageName, contents))) {
+                            throw new ResolutionException("Package " + packageName + " is split between "
+                                + owner.location().orElse(null) + " and " + artifact.toUri());
+                        }
+                        excluded.add(packageName);
+                    } else if (IsolatedClassLoader.isParentFirstPackageName(packageName)
+                        && (bootPackages.contains(packageName) || isLibraryPackage(packageName)
+                            || parent.getDefinedPackage(packageName) != null)) {
+                        excluded.add(packageName);
+                    } else {
+                        packageOwners.put(packageName, reference);
+                    }
+                }
+                references.put(name, excluded.isEmpty() && name.equals(descriptor.name())
+                    ? reference
+                    : new AutomaticModuleReference(automaticDescriptor(descriptor, name, excluded), reference));
+            }
+        }
+
+        ModuleFinder finder = new ModuleFinder() {
+            @Override
+            public Optional<ModuleReference> find(String name) {
+                return Optional.ofNullable(references.get(name));
+            }
+
+            @Override
+            public Set<ModuleReference> findAll() {
+                return new HashSet<>(references.values());
+            }
+        };
+
+        ModuleLayer boot = ModuleLayer.boot();
+        Configuration configuration = boot.configuration().resolve(finder, ModuleFinder.of(), references.keySet());
+        return boot.defineModulesWithOneLoader(configuration, parent);
+    }
+
+    /**
+     * Rebuilds an automatic module descriptor with another name and without some packages.
+     * Service providers and main class located in removed packages are dropped.
+     *
+     * @param descriptor the original descriptor
+     * @param name       the module name
+     * @param excluded   the packages to remove
+     * @return the new descriptor
+     */
+    private static ModuleDescriptor automaticDescriptor(ModuleDescriptor descriptor, String name, Set<String> excluded) {
+        ModuleDescriptor.Builder builder = ModuleDescriptor.newAutomaticModule(name);
+        Set<String> packages = new HashSet<>(descriptor.packages());
+        packages.removeAll(excluded);
+        builder.packages(packages);
+        descriptor.version().ifPresent(builder::version);
+        descriptor.mainClass()
+            .filter(mainClass -> packages.contains(packageName(mainClass)))
+            .ifPresent(builder::mainClass);
+        for (ModuleDescriptor.Provides provides : descriptor.provides()) {
+            List<String> providers = new ArrayList<>();
+            for (String provider : provides.providers()) {
+                if (packages.contains(packageName(provider))) {
+                    providers.add(provider);
+                }
+            }
+            if (!providers.isEmpty()) {
+                builder.provides(provides.service(), providers);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Lists the classes of a package held by a module, listing the module content on first use.
+     *
+     * @param reference   the module
+     * @param packageName the package name
+     * @param contents    the entry names of the modules listed so far
+     * @return the entry names of the classes directly in the package
+     * @throws UncheckedIOException if the module content cannot be listed
+     */
+    private static Set<String> classes(ModuleReference reference, String packageName,
+                                       Map<ModuleReference, List<String>> contents) {
+        List<String> names = contents.computeIfAbsent(reference, module -> {
+            try (ModuleReader reader = module.open(); Stream<String> entries = reader.list()) {
+                return entries.toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        String prefix = packageName.replace('.', '/') + "/";
+        return names.stream()
+            .filter(name -> name.startsWith(prefix) && name.endsWith(".class") && name.indexOf('/', prefix.length()) < 0)
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Checks if a package belongs to the bootstrap library, always loaded by the parent ClassLoader.
+     *
+     * @param packageName the package name to check
+     * @return true if the package belongs to the bootstrap library
+     */
+    private static boolean isLibraryPackage(String packageName) {
+        String root = BootstrapApplication.class.getPackageName();
+        return packageName.equals(root) || packageName.startsWith(root + ".");
+    }
+
+    /**
+     * Extracts the package name from a class name.
+     *
+     * @param className the fully qualified class name
+     * @return the package name, empty for the default package
+     */
+    private static String packageName(String className) {
+        int index = className.lastIndexOf('.');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    /**
+     * A module reference with a rewritten descriptor, reading the content of the original module.
+     */
+    private static final class AutomaticModuleReference extends ModuleReference {
+
+        private final ModuleReference delegate;
+
+        /**
+         * Creates a module reference over the content of another one.
+         *
+         * @param descriptor the rewritten descriptor
+         * @param delegate   the original module reference
+         */
+        private AutomaticModuleReference(ModuleDescriptor descriptor, ModuleReference delegate) {
+            super(descriptor, delegate.location().orElse(null));
+            this.delegate = delegate;
+        }
+
+        /**
+         * Opens the content of the original module.
+         *
+         * @return a reader of the original module
+         * @throws IOException if the module cannot be opened
+         */
+        @Override
+        public ModuleReader open() throws IOException {
+            return delegate.open();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package fr.traqueur.bootstrap.loader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Persistent cache of the native libraries bundled in jars, shared by restarts and JVMs.
+ *
+ * <p>When a dependency calls {@code System.loadLibrary}, the {@link IsolatedClassLoader} looks for the
+ * platform file name of the library (e.g. {@code libfoo.so}) in its jars, in any directory. Among
+ * the candidates, the one built for the current architecture is selected from its directory name
+ * ({@code linux-x86-64/}, {@code natives/linux_arm64/}, {@code META-INF/native/linux64/}...):
+ * directories naming another operating system or architecture are rejected, and directories naming
+ * the current architecture are preferred over architecture-neutral ones. Names are matched as whole
+ * tokens of the directory name, split on any non-alphanumeric character, so {@code harmony/} does
+ * not name the {@code arm} architecture.</p>
+ *
+ * <p>The selected library is extracted once into a directory named by the SHA-256 of its content,
+ * under the cache directory. An index file per library, named by the CRC-32 and size recorded in
+ * the jar and by the library file name, holds that hash and the library size, so later starts reuse
+ * the extracted file without reading the jar, as long as its size still matches; a truncated or
+ * altered file is extracted again. Files are written atomically and each JVM only writes the index files of
+ * the libraries it extracted, so several JVMs may share the directory.</p>
+ *
+ * <p>Only Linux is supported. Each library is extracted into its own directory, so libraries
+ * depending on each other must be loaded in dependency order, as the dynamic linker then finds
+ * the dependency already loaded.</p>
+ */
+public final class NativeLibraryCache {
+
+    private static final String INDEX_DIRECTORY = "index";
+    private static final String OS_NAME = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+
+    /**
+     * Other operating systems found in directory names, as whole tokens, alone or followed by a
+     * version ("win32", "freebsd13").
+     */
+    private static final String[] OTHER_OS_NAMES = {
+        "windows", "win", "darwin", "macos", "macosx", "osx", "freebsd", "openbsd", "android",
+        "sunos", "solaris", "aix"
+    };
+
+    /**
+     * Architecture aliases found in directory names, as whole tokens.
+     * Tokens split by '-' or '_' are joined first, so that "x86-64" is matched as "x8664" before "x86".
+     */
+    private static final String[][] ARCH_ALIASES = {
+        {"loongarch64", "loongarch64"},
+        {"powerpc64le", "ppc64le"},
+        {"aarch64", "aarch64"},
+        {"ppc64le", "ppc64le"},
+        {"ppc64", "ppc64"},
+        {"riscv64", "riscv64"},
+        {"linux64", "x86_64"},
+        {"linux32", "x86"},
+        {"x8664", "x86_64"},
+        {"amd64", "x86_64"},
+        {"arm64", "aarch64"},
+        {"armv8", "aarch64"},
+        {"armv7", "arm"},
+        {"armv6", "arm"},
+        {"armhf", "arm"},
+        {"armel", "arm"},
+        {"arm32", "arm"},
+        {"s390x", "s390x"},
+        {"i386", "x86"},
+        {"i486", "x86"},
+        {"i586", "x86"},
+        {"i686", "x86"},
+        {"x64", "x86_64"},
+        {"x86", "x86"},
+        {"arm", "arm"}
+    };
+
+    private final Path directory;
+    private final String arch;
+    private final boolean musl;
+
+    /**
+     * Creates a native library cache stored in a directory, for the current architecture.
+     * The directory is created on the first extraction.
+     *
+     * @param directory the cache directory
+     */
+    public NativeLibraryCache(Path directory) {
+        this.directory = directory;
+        this.arch = normalizeArch(System.getProperty("os.arch", ""));
+        this.musl = isMusl();
+    }
+
+    /**
+     * Checks whether native libraries can be served on this platform.
+     *
+     * @return true on Linux
+     */
+    public static boolean isSupported() {
+        return OS_NAME.startsWith("linux");
+    }
+
+    /**
+     * Selects the library built for the current platform among the candidates.
+     *
+     * @param names the entry names of the candidates, in classpath order
+     * @return the index of the selected candidate, or -1 if none is built for this platform
+     */
+    int select(List<String> names) {
+        int selected = -1;
+        int bestScore = 0;
+        for (int i = 0; i < names.size(); i++) {
+            int score = score(names.get(i));
+            if (score > bestScore) {
+                bestScore = score;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the extracted copy of a library, extracting it if needed.
+     *
+     * @param entry the classpath entry holding the library
+     * @param name  the entry name of the library
+     * @return the extracted library file
+     * @throws IOException if the library cannot be read or extracted
+     */
+    synchronized Path extract(ClassPathEntry entry, String name) throws IOException {
+        String fileName = name.substring(name.lastIndexOf('/') + 1);
+        String stamp = entry.stamp(name);
+        if (stamp == null) {
+            throw new NoSuchFileException(name);
+        }
+        Path indexFile = directory.resolve(INDEX_DIRECTORY).resolve(stamp + "-" + fileName);
+
+        IndexEntry indexed = readIndex(indexFile);
+        if (indexed != null) {
+            Path library = directory.resolve(indexed.hash()).resolve(fileName);
+            if (Files.isRegularFile(library) && Files.size(library) == indexed.size()) {
+                return library;
+            }
+        }
+
+        ClassPathEntry.ClassBytes content = entry.read(name);
+        if (content == null) {
+            throw new NoSuchFileException(name);
+        }
+        String hash = hash(content.bytes());
+        Path library = directory.resolve(hash).resolve(fileName);
+        // Another JVM may have extracted the same content already
+        if (!Files.isRegularFile(library) || Files.size(library) != content.bytes().length) {
+            writeAtomically(library, content.bytes());
+        }
+        writeAtomically(indexFile, (hash + " " + content.bytes().length).getBytes(StandardCharsets.UTF_8));
+        return library;
+    }
+
+    /**
+     * Scores a candidate library from its directory names.
+     *
+     * @param name the entry name of the candidate
+     * @return 0 if built for another platform, 1 if the platform is not named, 2 if the architecture is named,
+     * plus 1 for a musl build on musl
+     */
+    private int score(String name) {
+        int slash = name.lastIndexOf('/');
+        if (slash < 0) {
+            return 1;
+        }
+        int score = 1;
+        boolean muslBuild = false;
+        for (String segment : name.substring(0, slash).toLowerCase(Locale.ROOT).split("/")) {
+            String[] tokens = segment.split("[^a-z0-9]+");
+            if (namesOtherOs(tokens)) {
+                return 0;
+            }
+            // Also found inside tokens, as in "linuxmusl-x64"
+            muslBuild |= segment.contains("musl");
+            String segmentArch = archOf(tokens);
+            if (segmentArch != null) {
+                if (!segmentArch.equals(arch)) {
+                    return 0;
+                }
+                score = 2;
+            }
+        }
+        if (muslBuild && !musl) {
+            return 0;
+        }
+        // On musl, builds for musl are preferred over glibc ones
+        return muslBuild ? score + 1 : score;
+    }
+
+    /**
+     * Checks whether the tokens of a directory name name another operating system,
+     * alone or followed by a version, as in "freebsd13".
+     *
+     * @param tokens the lowercase tokens of the directory name
+     * @return true if another operating system is named
+     */
+    private static boolean namesOtherOs(String[] tokens) {
+        for (String token : tokens) {
+            for (String os : OTHER_OS_NAMES) {
+                if (token.startsWith(os) && token.chars().skip(os.length()).allMatch(Character::isDigit)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the architecture named by the tokens of a directory name.
+     * Each token is first joined with the next one, so that "x86", "64" is matched as "x8664".
+     *
+     * @param tokens the lowercase tokens of the directory name
+     * @return the normalized architecture, or null if none is named
+     */
+    private static String archOf(String[] tokens) {
+        for (int i = 0; i < tokens.length; i++) {
+            if (i + 1 < tokens.length) {
+                String joined = alias(tokens[i] + tokens[i + 1]);
+                if (joined != null) {
+                    return joined;
+                }
+            }
+            String known = alias(tokens[i]);
+            if (known != null) {
+                return known;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the architecture of an alias.
+     *
+     * @param token the whole token
+     * @return the normalized architecture, or null if the token is not an alias
+     */
+    private static String alias(String token) {
+        for (String[] alias : ARCH_ALIASES) {
+            if (alias[0].equals(token)) {
+                return alias[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Normalizes the {@code os.arch} value to the names of {@link #ARCH_ALIASES}.
+     *
+     * @param osArch the {@code os.arch} system property
+     * @return the normalized architecture
+     */
+    private static String normalizeArch(String osArch) {
+        String lowerArch = osArch.toLowerCase(Locale.ROOT);
+        String known = archOf(lowerArch.split("[^a-z0-9]+"));
+        return known != null ? known : lowerArch.replace("-", "").replace("_", "");
+    }
+
+    /**
+     * Checks whether the C library is musl, as on Alpine, whose libraries differ from glibc ones.
+     *
+     * @return true if a musl dynamic linker is installed
+     */
+    private static boolean isMusl() {
+        if (!isSupported()) {
+            return false;
+        }
+        try (DirectoryStream<Path> linkers = Files.newDirectoryStream(Paths.get("/lib"), "ld-musl-*")) {
+            return linkers.iterator().hasNext();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the index file of a library.
+     *
+     * @param indexFile the index file, named by the stamp and file name of the library
+     * @return the content hash and size of the extracted library, or null if it was not extracted yet
+     * @throws IOException if the index file cannot be read
+     */
+    private static IndexEntry readIndex(Path indexFile) throws IOException {
+        String[] parts;
+        try {
+            parts = Files.readString(indexFile, StandardCharsets.UTF_8).trim().split(" ");
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // A hash of another length is a truncated or foreign file: extract again
+        if (parts.length != 2 || parts[0].length() != 64) {
+            return null;
+        }
+        try {
+            return new IndexEntry(parts[0], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replaces a file of the cache atomically.
+     *
+     * @param file    the file to write
+     * @param content the file content
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 of some content.
+     *
+     * @param content the content
+     * @return the lowercase hexadecimal hash
+     */
+    private static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The index file content of an extracted library.
+     *
+     * @param hash the SHA-256 of the library content, naming its directory
+     * @param size the library size, checked before the extracted file is reused
+     */
+    private record IndexEntry(String hash, long size) {
+    }
+}
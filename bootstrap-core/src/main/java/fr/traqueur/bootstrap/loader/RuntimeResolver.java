@@ -0,0 +1,227 @@
+package fr.traqueur.bootstrap.loader;
+
+import fr.traqueur.bootstrap.resolver.ArtifactResolver;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderers;
+import org.eclipse.aether.RepositoryException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Long-lived resolver attaching extra dependency sets at runtime, e.g. the Maven dependencies
+ * declared by plugins. Each set is loaded by its own child {@link IsolatedClassLoader}, layered on
+ * the application ClassLoader.
+ *
+ * <p>The underlying {@link ArtifactResolver} is created on first use, or reused from bootstrap,
+ * and kept with its repository session and caches. Requests are queued and resolved by a single
+ * worker thread: all requests waiting when the worker becomes free are resolved together, each
+ * with its own version mediation, and downloaded at once. If the batch fails, its requests are
+ * retried one at a time, so one bad dependency set only fails its own request. Artifacts already
+ * loaded by the application ClassLoader are not loaded again by the child loaders, so plugins share
+ * the application's classes, in the application's version.</p>
+ *
+ * <p>Example:</p>
+ * <pre>{@code
+ * IsolatedClassLoader pluginLoader = ctx.resolver().attach(List.of("com.google.guava:guava:33.0.0-jre"));
+ * }</pre>
+ */
+public final class RuntimeResolver implements AutoCloseable {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final Supplier<ArtifactResolver> resolverFactory;
+    private final ClassLoader parent;
+    private final List<String> provided;
+    private final ExecutorService worker;
+    private final List<Request> pending = new ArrayList<>();
+    private ArtifactResolver resolver;
+    private boolean draining;
+    private boolean closed;
+
+    /**
+     * Creates a runtime resolver.
+     *
+     * @param resolverFactory     creates the artifact resolver on first use; called at most once
+     * @param parent              the application ClassLoader, parent of the child loaders
+     * @param providedCoordinates the coordinates of the artifacts the parent already loads,
+     *                            in format "groupId:artifactId[:extension[:classifier]]:version"
+     */
+    public RuntimeResolver(Supplier<ArtifactResolver> resolverFactory, ClassLoader parent,
+                           Collection<String> providedCoordinates) {
+        this.resolverFactory = resolverFactory;
+        this.parent = parent;
+        this.provided = List.copyOf(providedCoordinates);
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap-runtime-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the underlying artifact resolver, creating it if needed.
+     * It must not be used while requests are being resolved.
+     *
+     * @return the long-lived artifact resolver
+     */
+    public synchronized ArtifactResolver resolver() {
+        if (resolver == null) {
+            resolver = resolverFactory.get();
+        }
+        return resolver;
+    }
+
+    /**
+     * Resolves a dependency set asynchronously and loads it into a new child ClassLoader.
+     * Concurrent requests are batched into a single resolution.
+     * Artifacts the application ClassLoader already loads are taken from it, in its version: a
+     * dependency set selecting another version of them gets a warning and the application's version.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @return a future completed with the child ClassLoader, or with the resolution failure;
+     *         failed with an {@link IllegalStateException} if this resolver is closed
+     */
+    public CompletableFuture<IsolatedClassLoader> attachAsync(List<String> dependencyCoordinates) {
+        Request request = new Request(List.copyOf(dependencyCoordinates), new CompletableFuture<>());
+        synchronized (pending) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Runtime resolver closed"));
+            }
+            pending.add(request);
+            if (!draining) {
+                draining = true;
+                worker.execute(this::drain);
+            }
+        }
+        return request.result();
+    }
+
+    /**
+     * Resolves a dependency set and loads it into a new child ClassLoader, waiting for the result.
+     * Artifacts the application ClassLoader already loads are taken from it, in its version: a
+     * dependency set selecting another version of them gets a warning and the application's version.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @return the child ClassLoader
+     * @throws RepositoryException if resolution fails
+     * @throws IllegalStateException if this resolver is closed
+     */
+    public IsolatedClassLoader attach(List<String> dependencyCoordinates) throws RepositoryException {
+        try {
+            return attachAsync(dependencyCoordinates).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RepositoryException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves the pending requests in batches until none is left.
+     */
+    private void drain() {
+        while (true) {
+            List<Request> batch;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+            resolve(batch);
+        }
+    }
+
+    /**
+     * Resolves a batch of requests together and completes each of them.
+     * If the batch fails, its requests are retried one at a time, so that one failing dependency set
+     * does not fail the others.
+     *
+     * @param batch the requests to resolve
+     */
+    private void resolve(List<Request> batch) {
+        try {
+            List<List<Path>> results = resolver().resolveAll(batch.stream().map(Request::dependencies).toList(), provided);
+            ProgressRenderers.messages().println("[Bootstrap] Resolved " + batch.size() + " runtime dependency request(s)");
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(new IsolatedClassLoader(results.get(i), parent));
+            }
+        } catch (Exception e) {
+            if (batch.size() > 1 && !isClosed()) {
+                batch.forEach(request -> resolve(List.of(request)));
+            } else {
+                batch.forEach(request -> request.result().completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Checks whether this resolver has been closed.
+     *
+     * @return true if closed
+     */
+    private boolean isClosed() {
+        synchronized (pending) {
+            return closed;
+        }
+    }
+
+    /**
+     * Stops the worker thread and closes the artifact resolver.
+     * Requests still pending are failed with an {@link IllegalStateException}, and the resolution in
+     * progress, if any, is interrupted and awaited before the artifact resolver is closed.
+     * Child ClassLoaders already attached stay usable.
+     */
+    @Override
+    public void close() {
+        List<Request> dropped;
+        synchronized (pending) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+        }
+        IllegalStateException failure = new IllegalStateException("Runtime resolver closed");
+        dropped.forEach(request -> request.result().completeExceptionally(failure));
+
+        worker.shutdownNow();
+        try {
+            if (!worker.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("[Bootstrap] Warning: Runtime resolution still running after "
+                    + CLOSE_TIMEOUT_SECONDS + "s, closing the resolver anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (resolver != null) {
+                resolver.close();
+            }
+        }
+    }
+
+    /**
+     * A pending request.
+     *
+     * @param dependencies the requested dependencies
+     * @param result       the future completed with the child ClassLoader
+     */
+    private record Request(List<String> dependencies, CompletableFuture<IsolatedClassLoader> result) {
+    }
+}
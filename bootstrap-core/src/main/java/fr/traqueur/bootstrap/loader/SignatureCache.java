@@ -0,0 +1,475 @@
+package fr.traqueur.bootstrap.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSigner;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Timestamp;
+import java.security.cert.CertPath;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Persistent cache of jar signature verification results.
+ *
+ * <p>A jar is verified once: every entry is read and checked against its signature, as
+ * {@link java.util.jar.JarFile} does on each start, and the signers of each entry are recorded
+ * against the SHA-256 of the jar content. On later starts, the jar is hashed again and, when the
+ * hash is known, the {@link IsolatedClassLoader} opens it without verification, defining classes
+ * with the recorded {@link CodeSigner}s. Hashing reads the jar once, sequentially, which is much
+ * cheaper than verifying every entry. A jar failing verification is not recorded, so it keeps
+ * failing on load.</p>
+ *
+ * <p>Jars without a signature file ({@code META-INF/*.SF}) are unsigned: they are neither hashed
+ * nor verified, only their central directory is read.</p>
+ *
+ * <p>Optionally, a jar whose size and modification time did not change since it was hashed can
+ * be trusted without hashing it again. This skips reading the jar, but a jar replaced by a
+ * different content with the same size and modification time, e.g. restored by a tool that
+ * preserves timestamps, would then be defined with the signers of its previous content. It is
+ * therefore an explicit opt-in, for cache directories only written by trusted processes.</p>
+ *
+ * <p>The cache directory holds an index of the known jars and one record per signed jar content.
+ * Files are replaced atomically, and the index is merged with its current content on save, so
+ * several JVMs may share the directory.</p>
+ */
+public final class SignatureCache {
+
+    private static final String INDEX_FILE = "signatures.idx";
+    private static final String RECORD_EXTENSION = ".signers";
+    private static final int RECORD_FORMAT = 1;
+    private static final String CERT_PATH_ENCODING = "PkiPath";
+    private static final String SIGNATURE_DIRECTORY = "META-INF/";
+
+    private final Path directory;
+    private final boolean trustFileAttributes;
+    private Map<String, IndexEntry> index;
+    private final Set<String> changed = new HashSet<>();
+
+    /**
+     * Creates a signature cache stored in a directory, hashing every signed jar on each start.
+     * The directory is created on the first save.
+     *
+     * @param directory the cache directory
+     */
+    public SignatureCache(Path directory) {
+        this(directory, false);
+    }
+
+    /**
+     * Creates a signature cache stored in a directory.
+     * The directory is created on the first save.
+     *
+     * @param directory           the cache directory
+     * @param trustFileAttributes whether a jar whose size and modification time did not change is
+     *                            trusted without hashing it again
+     */
+    public SignatureCache(Path directory, boolean trustFileAttributes) {
+        this.directory = directory;
+        this.trustFileAttributes = trustFileAttributes;
+    }
+
+    /**
+     * Gets the signatures of a jar, verifying the jar if its content is unknown.
+     *
+     * @param jar the jar file
+     * @return the signatures of the jar entries
+     * @throws IOException       if the jar or the cache cannot be read
+     * @throws SecurityException if the jar fails verification
+     */
+    synchronized JarSignatures lookup(Path jar) throws IOException {
+        Map<String, IndexEntry> known = index();
+        String key = jar.toAbsolutePath().normalize().toString();
+        BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        IndexEntry entry = known.get(key);
+        boolean unchanged = entry != null && entry.size() == size && entry.modified() == modified;
+        if (!trustFileAttributes || !unchanged) {
+            if (!hasSignatureFile(jar)) {
+                if (known.remove(key) != null) {
+                    changed.add(key);
+                }
+                return JarSignatures.UNSIGNED;
+            }
+            String hash = hash(jar);
+            boolean sameContent = entry != null && entry.hash().equals(hash);
+            if (!sameContent || !unchanged) {
+                entry = new IndexEntry(hash, size, modified, sameContent ? entry.signed() : null);
+                known.put(key, entry);
+                changed.add(key);
+            }
+        }
+
+        if (entry.signed() == Boolean.FALSE) {
+            return JarSignatures.UNSIGNED;
+        }
+        // The record may have been written for the same content at another path, or by another JVM
+        JarSignatures signatures = readRecord(entry.hash());
+        if (signatures == null) {
+            signatures = verify(jar);
+            if (signatures.isSigned()) {
+                writeRecord(entry.hash(), signatures);
+            }
+        }
+        if (!Boolean.valueOf(signatures.isSigned()).equals(entry.signed())) {
+            known.put(key, new IndexEntry(entry.hash(), size, modified, signatures.isSigned()));
+            changed.add(key);
+        }
+        return signatures;
+    }
+
+    /**
+     * Writes the index if jars were added, changed or removed since it was read.
+     * The index is read again and only the jars looked up by this cache are replaced, so the
+     * entries written meanwhile by other JVMs sharing the directory are kept.
+     *
+     * @throws IOException if the index cannot be read or written
+     */
+    public synchronized void save() throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<String, IndexEntry> merged = readIndex();
+        for (String key : changed) {
+            IndexEntry entry = index.get(key);
+            if (entry != null && entry.signed() != null) {
+                merged.put(key, entry);
+            } else {
+                merged.remove(key);
+            }
+        }
+        StringBuilder content = new StringBuilder();
+        merged.forEach((path, entry) -> content.append(entry.hash()).append('\t')
+            .append(entry.size()).append('\t')
+            .append(entry.modified()).append('\t')
+            .append(entry.signed() ? '1' : '0').append('\t')
+            .append(path).append('\n'));
+        writeAtomically(directory.resolve(INDEX_FILE), content.toString().getBytes(StandardCharsets.UTF_8));
+        changed.clear();
+    }
+
+    /**
+     * Gets the index of known jars, reading it on first use.
+     *
+     * @return the index entries, keyed by absolute jar path
+     * @throws IOException if the index cannot be read
+     */
+    private Map<String, IndexEntry> index() throws IOException {
+        if (index == null) {
+            index = readIndex();
+        }
+        return index;
+    }
+
+    /**
+     * Reads the index file of the cache directory.
+     * Malformed lines are ignored, and their jars verified again.
+     *
+     * @return the index entries, keyed by absolute jar path; empty if there is no index yet
+     * @throws IOException if the index cannot be read
+     */
+    private Map<String, IndexEntry> readIndex() throws IOException {
+        Map<String, IndexEntry> entries = new LinkedHashMap<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return entries;
+        }
+        for (String line : lines) {
+            String[] parts = line.split("\t", 5);
+            if (parts.length < 5) {
+                continue;
+            }
+            try {
+                entries.put(parts[4], new IndexEntry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                    parts[3].equals("1")));
+            } catch (NumberFormatException e) {
+                // Malformed line, the jar is verified again
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Checks whether a jar holds a signature file, without verifying it.
+     * Only the central directory is read.
+     *
+     * @param jar the jar file
+     * @return true if the jar has a {@code META-INF/*.SF} entry
+     * @throws IOException if the jar cannot be read
+     */
+    private static boolean hasSignatureFile(Path jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile(), false)) {
+            return jarFile.stream().map(JarEntry::getName).anyMatch(name -> {
+                String upperName = name.toUpperCase(Locale.ROOT);
+                return upperName.startsWith(SIGNATURE_DIRECTORY) && upperName.endsWith(".SF")
+                    && upperName.indexOf('/', SIGNATURE_DIRECTORY.length()) < 0;
+            });
+        }
+    }
+
+    /**
+     * Verifies every entry of a jar and collects their signers.
+     *
+     * @param jar the jar file
+     * @return the signatures of the jar entries
+     * @throws IOException       if the jar cannot be read
+     * @throws SecurityException if an entry does not match its signature
+     */
+    private static JarSignatures verify(Path jar) throws IOException {
+        Map<String, CodeSigner[]> signers = new HashMap<>();
+        Map<List<CodeSigner>, CodeSigner[]> shared = new HashMap<>();
+        byte[] buffer = new byte[8192];
+        try (JarFile jarFile = new JarFile(jar.toFile(), true)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                // Signers are only known, and digests checked, once the entry has been fully read
+                try (InputStream is = jarFile.getInputStream(entry)) {
+                    while (is.read(buffer) >= 0) {
+                        // Drain
+                    }
+                }
+                CodeSigner[] entrySigners = entry.getCodeSigners();
+                if (entrySigners != null) {
+                    signers.put(entry.getName(), shared.computeIfAbsent(List.of(entrySigners), key -> entrySigners));
+                }
+            }
+        }
+        return signers.isEmpty() ? JarSignatures.UNSIGNED : new JarSignatures(signers);
+    }
+
+    /**
+     * Reads the record of a signed jar content.
+     *
+     * @param hash the jar content hash
+     * @return the signatures of the jar entries, or null if the record is missing or unreadable
+     * @throws IOException if the record cannot be read
+     */
+    private JarSignatures readRecord(String hash) throws IOException {
+        Path record = directory.resolve(hash + RECORD_EXTENSION);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(record)))) {
+            if (in.readInt() != RECORD_FORMAT) {
+                return null;
+            }
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map<String, CodeSigner[]> signers = new HashMap<>();
+            int groups = in.readInt();
+            for (int group = 0; group < groups; group++) {
+                CodeSigner[] groupSigners = new CodeSigner[in.readInt()];
+                for (int i = 0; i < groupSigners.length; i++) {
+                    CertPath signerPath = readCertPath(in, factory);
+                    Timestamp timestamp = null;
+                    if (in.readBoolean()) {
+                        Date time = new Date(in.readLong());
+                        timestamp = new Timestamp(time, readCertPath(in, factory));
+                    }
+                    groupSigners[i] = new CodeSigner(signerPath, timestamp);
+                }
+                int names = in.readInt();
+                for (int i = 0; i < names; i++) {
+                    signers.put(in.readUTF(), groupSigners);
+                }
+            }
+            return new JarSignatures(signers);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (CertificateException | IOException e) {
+            // Corrupted record, the jar is verified again
+            return null;
+        }
+    }
+
+    /**
+     * Writes the record of a signed jar content.
+     * Entries signed by the same signers are grouped, so each certificate chain is written once per group.
+     *
+     * @param hash       the jar content hash
+     * @param signatures the signatures of the jar entries
+     * @throws IOException if the record cannot be written
+     */
+    private void writeRecord(String hash, JarSignatures signatures) throws IOException {
+        Map<CodeSigner[], List<String>> groups = new LinkedHashMap<>();
+        signatures.signers().forEach((name, signers) -> groups.computeIfAbsent(signers, key -> new ArrayList<>()).add(name));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            out.writeInt(RECORD_FORMAT);
+            out.writeInt(groups.size());
+            for (Map.Entry<CodeSigner[], List<String>> group : groups.entrySet()) {
+                out.writeInt(group.getKey().length);
+                for (CodeSigner signer : group.getKey()) {
+                    writeCertPath(out, signer.getSignerCertPath());
+                    Timestamp timestamp = signer.getTimestamp();
+                    out.writeBoolean(timestamp != null);
+                    if (timestamp != null) {
+                        out.writeLong(timestamp.getTimestamp().getTime());
+                        writeCertPath(out, timestamp.getSignerCertPath());
+                    }
+                }
+                out.writeInt(group.getValue().size());
+                for (String name : group.getValue()) {
+                    out.writeUTF(name);
+                }
+            }
+        }
+        writeAtomically(directory.resolve(hash + RECORD_EXTENSION), bytes.toByteArray());
+    }
+
+    /**
+     * Reads an encoded certificate chain.
+     *
+     * @param in      the record input
+     * @param factory the X.509 certificate factory
+     * @return the certificate chain
+     * @throws IOException          if the record cannot be read
+     * @throws CertificateException if the chain cannot be decoded
+     */
+    private static CertPath readCertPath(DataInputStream in, CertificateFactory factory) throws IOException, CertificateException {
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        return factory.generateCertPath(new ByteArrayInputStream(encoded), CERT_PATH_ENCODING);
+    }
+
+    /**
+     * Writes an encoded certificate chain.
+     *
+     * @param out  the record output
+     * @param path the certificate chain
+     * @throws IOException if the chain cannot be encoded or written
+     */
+    private static void writeCertPath(DataOutputStream out, CertPath path) throws IOException {
+        byte[] encoded;
+        try {
+            encoded = path.getEncoded(CERT_PATH_ENCODING);
+        } catch (CertificateException e) {
+            throw new IOException("Cannot encode certificate chain: " + e.getMessage(), e);
+        }
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    /**
+     * Replaces a file of the cache directory atomically.
+     *
+     * @param file    the file to write
+     * @param content the file content
+     * @throws IOException if the file cannot be written
+     */
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 of a file.
+     *
+     * @param file the file
+     * @return the lowercase hexadecimal hash
+     * @throws IOException if the file cannot be read
+     */
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[65536];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * A known jar.
+     *
+     * @param hash     the SHA-256 of the jar content
+     * @param size     the jar size when it was hashed
+     * @param modified the jar modification time when it was hashed, in milliseconds
+     * @param signed   whether the jar is signed, or null if not verified yet; false when the jar has a
+     *                 signature file but no signed entry
+     */
+    private record IndexEntry(String hash, long size, long modified, Boolean signed) {
+    }
+
+    /**
+     * The verified signers of the entries of a jar.
+     *
+     * @param signers the signers of each signed entry, keyed by real entry name
+     */
+    record JarSignatures(Map<String, CodeSigner[]> signers) {
+
+        /**
+         * Signatures of an unsigned jar.
+         */
+        static final JarSignatures UNSIGNED = new JarSignatures(Map.of());
+
+        /**
+         * Checks whether any entry of the jar is signed.
+         *
+         * @return true if the jar is signed
+         */
+        boolean isSigned() {
+            return !signers.isEmpty();
+        }
+
+        /**
+         * Gets the signers of an entry.
+         *
+         * @param realName the real name of the entry, versioned in multi-release jars
+         * @return the signers, shared between entries and copied by {@link java.security.CodeSource},
+         * or null if the entry is unsigned
+         */
+        CodeSigner[] signersOf(String realName) {
+            return signers.get(realName);
+        }
+    }
+}
@@ -1,42 +1,87 @@
 package fr.traqueur.bootstrap.resolver;
 
+import fr.traqueur.bootstrap.config.DependencyLock;
 import fr.traqueur.bootstrap.config.DependencyManifest.Repository;
+import fr.traqueur.bootstrap.resolver.progress.AggregatingTransferListener;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderer;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderers;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositoryCache;
 import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositoryException;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.resolution.DependencyRequest;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.eclipse.aether.supplier.RepositorySystemSupplier;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Resolves Maven dependencies using Apache Maven Resolver.
  * This class handles downloading artifacts and their transitive dependencies.
+ *
+ * <p>Lock resolution records, for each root dependency, every artifact key its subtree reaches.
+ * When the manifest changes, {@link #resolveLock(List, List, DependencyLock)} uses this to re-collect
+ * only the changed roots and the roots whose subtrees overlap them, and reuses the previous result
+ * for all the others. Conflict mediation only happens between subtrees sharing a key, so disjoint
+ * subtrees keep their previous outcome.</p>
+ *
+ * <p>A resolver keeps its repository session and cache for its whole life, so it can be reused for
+ * later requests, such as the plugin dependencies resolved by
+ * {@link fr.traqueur.bootstrap.loader.RuntimeResolver}. It is not meant to be used by several threads at once.</p>
  */
-public class ArtifactResolver {
+public class ArtifactResolver implements AutoCloseable {
 
+    private final Path localRepositoryPath;
     private final RepositorySystem repositorySystem;
     private final DefaultRepositorySystemSession session;
+    private final DefaultRepositorySystemSession collectSession;
     private final List<RemoteRepository> repositories;
+    private final AggregatingTransferListener transferListener;
 
     /**
-     * Creates a new artifact resolver.
+     * Creates a new artifact resolver reporting progress with the renderer configured for this process.
      *
      * @param localRepositoryPath the local cache directory for downloaded artifacts
      * @param repositories the list of remote Maven repositories to use
+     * @see ProgressRenderers#fromEnvironment()
      */
     public ArtifactResolver(Path localRepositoryPath, List<Repository> repositories) {
+        this(localRepositoryPath, repositories, ProgressRenderers.fromEnvironment());
+    }
+
+    /**
+     * Creates a new artifact resolver.
+     *
+     * @param localRepositoryPath the local cache directory for downloaded artifacts
+     * @param repositories the list of remote Maven repositories to use
+     * @param progressRenderer the renderer receiving download progress
+     */
+    public ArtifactResolver(Path localRepositoryPath, List<Repository> repositories, ProgressRenderer progressRenderer) {
+        this.localRepositoryPath = localRepositoryPath;
+
         // Create repository system using supplier
         this.repositorySystem = new RepositorySystemSupplier().get();
 
@@ -44,9 +89,17 @@ public class ArtifactResolver {
         this.session = MavenRepositorySystemUtils.newSession();
         LocalRepository localRepo = new LocalRepository(localRepositoryPath.toFile());
         this.session.setLocalRepositoryManager(repositorySystem.newLocalRepositoryManager(session, localRepo));
-        this.session.setTransferListener(new SimpleTransferListener());
+        this.transferListener = new AggregatingTransferListener(progressRenderer);
+        this.session.setTransferListener(transferListener);
+        // Keep descriptors and metadata across requests of a long-lived resolver
+        this.session.setCache(new DefaultRepositoryCache());
         this.session.setReadOnly();
 
+        // Verbose conflict resolution keeps losers as leaves, so each subtree knows every key it competes for
+        this.collectSession = new DefaultRepositorySystemSession(session);
+        this.collectSession.setConfigProperty(ConflictResolver.CONFIG_PROP_VERBOSE, true);
+        this.collectSession.setReadOnly();
+
         // Convert repositories
         this.repositories = repositories.stream()
             .map(repo -> new RemoteRepository.Builder(repo.id(), "default", repo.url()).build())
@@ -69,25 +122,378 @@ public class ArtifactResolver {
      * @throws DependencyResolutionException if resolution fails
      */
     public List<Path> resolve(List<String> dependencyCoordinates) throws DependencyResolutionException {
-        List<Dependency> dependencies = new ArrayList<>();
-
-        for (String coords : dependencyCoordinates) {
-            Artifact artifact = new DefaultArtifact(coords);
-            dependencies.add(new Dependency(artifact, "compile"));
-        }
-
         CollectRequest collectRequest = new CollectRequest();
-        collectRequest.setDependencies(dependencies);
+        collectRequest.setDependencies(toDependencies(dependencyCoordinates));
         collectRequest.setRepositories(repositories);
 
         DependencyRequest dependencyRequest = new DependencyRequest();
         dependencyRequest.setCollectRequest(collectRequest);
 
-        List<ArtifactResult> results = repositorySystem.resolveDependencies(session, dependencyRequest)
-            .getArtifactResults();
+        List<ArtifactResult> results;
+        try {
+            results = repositorySystem.resolveDependencies(session, dependencyRequest).getArtifactResults();
+        } finally {
+            transferListener.finish();
+        }
 
         return results.stream()
             .map(result -> result.getArtifact().getFile().toPath())
             .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * Resolves a list of dependencies and records the result as a lock.
+     * The lock can be written into the cache directory to skip resolution on later starts.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @return the lock describing the resolved artifacts, relative to the local cache directory
+     * @throws RepositoryException if collection or resolution fails
+     */
+    public DependencyLock resolveLock(List<String> dependencyCoordinates) throws RepositoryException {
+        return resolveLock(dependencyCoordinates, List.of());
+    }
+
+    /**
+     * Resolves a list of dependencies, skipping excluded artifacts, and records the result as a lock.
+     * Excluded artifacts are neither downloaded nor returned, but their own dependencies are still resolved.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @param exclusions the artifacts to skip, in format "groupId:artifactId"
+     * @return the lock describing the resolved artifacts, relative to the local cache directory
+     * @throws RepositoryException if collection or resolution fails
+     */
+    public DependencyLock resolveLock(List<String> dependencyCoordinates, List<String> exclusions) throws RepositoryException {
+        try {
+            Map<String, RootSubtree> collected = collect(dependencyCoordinates, new HashSet<>(exclusions));
+            return assemble(dependencyCoordinates, exclusions, collected, null);
+        } finally {
+            transferListener.finish();
+        }
+    }
+
+    /**
+     * Resolves a list of dependencies incrementally from a previous lock.
+     * Only the roots added or changed since the previous lock are re-collected, together with
+     * the unchanged roots whose subtrees overlap them, since conflict mediation must be rechecked there.
+     * Falls back to a full resolution when the previous lock cannot be reused.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @param exclusions the artifacts to skip, in format "groupId:artifactId"
+     * @param previous the lock of the previous resolution, may be null
+     * @return the lock describing the resolved artifacts, relative to the local cache directory
+     * @throws RepositoryException if collection or resolution fails
+     */
+    public DependencyLock resolveLock(List<String> dependencyCoordinates, List<String> exclusions, DependencyLock previous)
+        throws RepositoryException {
+        if (previous == null || !previous.hasGraph() || previous.paths(localRepositoryPath) == null
+            || !new HashSet<>(previous.exclusions()).equals(new HashSet<>(exclusions))) {
+            return resolveLock(dependencyCoordinates, exclusions);
+        }
+
+        Map<String, Set<String>> previousKeys = new HashMap<>();
+        for (DependencyLock.Subtree subtree : previous.graph()) {
+            previousKeys.put(subtree.root(), new HashSet<>(subtree.keys()));
+        }
+        List<String> unchanged = dependencyCoordinates.stream().filter(previousKeys::containsKey).toList();
+        if (unchanged.isEmpty()) {
+            return resolveLock(dependencyCoordinates, exclusions);
+        }
+
+        // Keys of the subtrees that disappear: removed roots and previous versions of changed roots
+        Set<String> dirty = new HashSet<>();
+        previousKeys.forEach((root, keys) -> {
+            if (!dependencyCoordinates.contains(root)) {
+                dirty.addAll(keys);
+            }
+        });
+
+        Set<String> recollect = new LinkedHashSet<>(dependencyCoordinates);
+        recollect.removeAll(unchanged);
+        try {
+            Map<String, RootSubtree> collected;
+            while (true) {
+                List<String> roots = dependencyCoordinates.stream().filter(recollect::contains).toList();
+                collected = collect(roots, new HashSet<>(exclusions));
+
+                // Any key touched by the re-collected subtrees, before or after, may mediate differently
+                Set<String> touched = new HashSet<>(dirty);
+                collected.values().forEach(subtree -> touched.addAll(subtree.keys()));
+                recollect.stream().filter(previousKeys::containsKey).forEach(root -> touched.addAll(previousKeys.get(root)));
+
+                List<String> overlapping = unchanged.stream()
+                    .filter(root -> !recollect.contains(root) && !Collections.disjoint(previousKeys.get(root), touched))
+                    .toList();
+                if (overlapping.isEmpty()) {
+                    break;
+                }
+                recollect.addAll(overlapping);
+            }
+
+            ProgressRenderers.messages().println("[Bootstrap] Incremental resolution: re-collected " + recollect.size() + "/"
+                + dependencyCoordinates.size() + " root dependencies");
+            return assemble(dependencyCoordinates, exclusions, collected, previous);
+        } finally {
+            transferListener.finish();
+        }
+    }
+
+    /**
+     * Resolves several independent dependency sets, with a single download.
+     * Each set is collected and mediated on its own, as if resolved alone, so one set never changes
+     * the versions selected for another. The sets share the repository session and its caches, so
+     * descriptors read for one set are reused by the others, and the artifacts of all sets are
+     * downloaded together.
+     * Artifacts already provided, e.g. by a parent ClassLoader, are skipped, but their own
+     * dependencies are still resolved unless provided too. They are matched by
+     * "groupId:artifactId" and classifier, and the provided version wins: a set selecting another
+     * version of a provided artifact gets a warning and uses the provided one.
+     *
+     * @param dependencySets the dependency sets, each in format "groupId:artifactId:version"
+     * @param provided the artifacts to skip, in format "groupId:artifactId[:extension[:classifier]]:version"
+     * @return the paths to the JAR files of each set, in the order of the sets
+     * @throws RepositoryException if collection or resolution fails
+     */
+    public List<List<Path>> resolveAll(List<List<String>> dependencySets, Collection<String> provided) throws RepositoryException {
+        Map<String, String> providedVersions = new HashMap<>();
+        for (String coordinates : provided) {
+            Artifact artifact = new DefaultArtifact(coordinates);
+            providedVersions.put(classifierKey(artifact), artifact.getVersion());
+        }
+        try {
+            List<List<DependencyNode>> winners = new ArrayList<>(dependencySets.size());
+            Map<String, DependencyNode> nodes = new LinkedHashMap<>();
+            for (List<String> dependencySet : dependencySets) {
+                List<String> roots = dependencySet.stream().distinct().toList();
+                Map<String, RootSubtree> collected = collect(roots, Set.of());
+
+                List<DependencyNode> setWinners = new ArrayList<>();
+                for (String root : roots) {
+                    RootSubtree subtree = collected.get(root);
+                    if (subtree == null) {
+                        continue;
+                    }
+                    for (DependencyNode node : subtree.winners()) {
+                        Artifact artifact = node.getArtifact();
+                        String providedVersion = providedVersions.get(classifierKey(artifact));
+                        if (providedVersion == null) {
+                            setWinners.add(node);
+                        } else if (!providedVersion.equals(artifact.getVersion())) {
+                            System.err.println("[Bootstrap] Warning: " + artifact + " is provided in version "
+                                + providedVersion + ", which is used instead");
+                        }
+                    }
+                }
+                setWinners.forEach(node -> nodes.putIfAbsent(node.getArtifact().toString(), node));
+                winners.add(setWinners);
+            }
+            Map<String, Path> downloaded = download(nodes.values());
+
+            List<List<Path>> results = new ArrayList<>(dependencySets.size());
+            for (List<DependencyNode> setWinners : winners) {
+                Set<Path> paths = new LinkedHashSet<>();
+                setWinners.forEach(node -> paths.add(downloaded.get(node.getArtifact().toString())));
+                results.add(List.copyOf(paths));
+            }
+            return results;
+        } finally {
+            transferListener.finish();
+        }
+    }
+
+    /**
+     * Closes the repository system and releases its resources.
+     */
+    public void close() {
+        repositorySystem.shutdown();
+    }
+
+    /**
+     * Collects the dependency graph of a list of roots with verbose conflict resolution.
+     *
+     * @param roots the root dependencies in format "groupId:artifactId:version"
+     * @param excluded the artifacts to skip, in format "groupId:artifactId"
+     * @return the subtree of each root, keyed by root coordinates
+     * @throws RepositoryException if collection fails
+     */
+    private Map<String, RootSubtree> collect(List<String> roots, Set<String> excluded) throws RepositoryException {
+        Map<String, RootSubtree> subtrees = new HashMap<>();
+        if (roots.isEmpty()) {
+            return subtrees;
+        }
+
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.setDependencies(toDependencies(roots));
+        collectRequest.setRepositories(repositories);
+        List<DependencyNode> children = repositorySystem.collectDependencies(collectSession, collectRequest)
+            .getRoot().getChildren();
+
+        // One child per root, in request order
+        for (int i = 0; i < roots.size() && i < children.size(); i++) {
+            RootSubtree subtree = new RootSubtree(new LinkedHashSet<>(), new ArrayList<>());
+            walk(children.get(i), subtree, excluded, Collections.newSetFromMap(new IdentityHashMap<>()));
+            subtrees.put(roots.get(i), subtree);
+        }
+        return subtrees;
+    }
+
+    /**
+     * Walks a subtree in preorder, recording every key and the winning, non-excluded nodes.
+     * Conflict losers lead to the subtree of their winner, which the root depends on in their place.
+     *
+     * @param node the node to walk
+     * @param subtree the subtree receiving the keys and winners
+     * @param excluded the artifacts to skip, in format "groupId:artifactId"
+     * @param visited the nodes already walked, to guard against cycles
+     */
+    private static void walk(DependencyNode node, RootSubtree subtree, Set<String> excluded, Set<DependencyNode> visited) {
+        if (!visited.add(node)) {
+            return;
+        }
+        Artifact artifact = node.getArtifact();
+        if (artifact != null) {
+            String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+            subtree.keys().add(key);
+            if (node.getData().get(ConflictResolver.NODE_DATA_WINNER) instanceof DependencyNode winner) {
+                // Conflict loser, kept by verbose mode without children: the root uses the winner instead
+                walk(winner, subtree, excluded, visited);
+                return;
+            }
+            // Excluded artifacts are skipped, but their children are still walked
+            if (!excluded.contains(key)) {
+                subtree.winners().add(node);
+            }
+        }
+        for (DependencyNode child : node.getChildren()) {
+            walk(child, subtree, excluded, visited);
+        }
+    }
+
+    /**
+     * Builds a lock from freshly collected subtrees and, for the other roots, from a previous lock.
+     * Collected artifacts are downloaded; reused artifacts are taken as-is from the cache.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @param exclusions the artifacts skipped, in format "groupId:artifactId"
+     * @param collected the collected subtrees, keyed by root coordinates
+     * @param previous the lock providing the roots that were not collected, may be null if all were
+     * @return the new lock
+     * @throws RepositoryException if an artifact cannot be resolved
+     */
+    private DependencyLock assemble(List<String> dependencyCoordinates, List<String> exclusions,
+                                    Map<String, RootSubtree> collected, DependencyLock previous) throws RepositoryException {
+        Map<String, Integer> previousIndexes = new HashMap<>();
+        Map<String, DependencyLock.Subtree> previousSubtrees = new HashMap<>();
+        if (previous != null) {
+            for (int i = 0; i < previous.dependencies().size(); i++) {
+                previousIndexes.put(previous.dependencies().get(i), i);
+            }
+            previous.graph().forEach(subtree -> previousSubtrees.put(subtree.root(), subtree));
+        }
+
+        // Walk roots in manifest order, so that the classpath keeps the preorder of the full graph
+        List<DependencyLock.Subtree> graph = new ArrayList<>();
+        Map<String, PendingEntry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < dependencyCoordinates.size(); i++) {
+            String root = dependencyCoordinates.get(i);
+            int rootIndex = i;
+            RootSubtree subtree = collected.get(root);
+            if (subtree != null) {
+                graph.add(new DependencyLock.Subtree(root, List.copyOf(subtree.keys())));
+                for (DependencyNode node : subtree.winners()) {
+                    entries.computeIfAbsent(node.getArtifact().toString(), k -> new PendingEntry(node, null))
+                        .roots().add(rootIndex);
+                }
+            } else {
+                int previousIndex = previousIndexes.get(root);
+                graph.add(previousSubtrees.get(root));
+                for (DependencyLock.Entry entry : previous.artifacts()) {
+                    if (entry.roots().contains(previousIndex)) {
+                        entries.computeIfAbsent(entry.coordinates(), k -> new PendingEntry(null, entry.path()))
+                            .roots().add(rootIndex);
+                    }
+                }
+            }
+        }
+
+        // Download the collected artifacts
+        Map<String, Path> downloaded = download(entries.values().stream()
+            .map(PendingEntry::node)
+            .filter(node -> node != null)
+            .toList());
+        Path base = localRepositoryPath.toAbsolutePath().normalize();
+
+        List<DependencyLock.Entry> artifacts = new ArrayList<>(entries.size());
+        entries.forEach((coordinates, entry) -> artifacts.add(new DependencyLock.Entry(coordinates,
+            entry.path() != null
+                ? entry.path()
+                : base.relativize(downloaded.get(coordinates)).toString().replace('\\', '/'),
+            List.copyOf(entry.roots()))));
+        return new DependencyLock(List.copyOf(dependencyCoordinates), List.copyOf(exclusions), graph, artifacts);
+    }
+
+    /**
+     * Downloads the artifacts of collected nodes, or finds them in the local cache.
+     *
+     * @param nodes the collected nodes
+     * @return the absolute path of each artifact, keyed by artifact coordinates
+     * @throws RepositoryException if an artifact cannot be resolved
+     */
+    private Map<String, Path> download(Collection<DependencyNode> nodes) throws RepositoryException {
+        List<ArtifactRequest> requests = nodes.stream().map(ArtifactRequest::new).toList();
+        Map<String, Path> downloaded = new HashMap<>();
+        for (ArtifactResult result : repositorySystem.resolveArtifacts(session, requests)) {
+            Artifact artifact = result.getArtifact();
+            downloaded.put(artifact.toString(), artifact.getFile().toPath().toAbsolutePath().normalize());
+        }
+        return downloaded;
+    }
+
+    /**
+     * Gets the key matching an artifact against provided artifacts, whatever their version.
+     *
+     * @param artifact the artifact
+     * @return "groupId:artifactId", followed by ":classifier" if the artifact has one
+     */
+    private static String classifierKey(Artifact artifact) {
+        String key = artifact.getGroupId() + ":" + artifact.getArtifactId();
+        return artifact.getClassifier().isEmpty() ? key : key + ":" + artifact.getClassifier();
+    }
+
+    /**
+     * Converts coordinates into compile-scoped dependencies.
+     *
+     * @param dependencyCoordinates the dependencies in format "groupId:artifactId:version"
+     * @return the dependencies
+     */
+    private static List<Dependency> toDependencies(List<String> dependencyCoordinates) {
+        List<Dependency> dependencies = new ArrayList<>();
+        for (String coords : dependencyCoordinates) {
+            Artifact artifact = new DefaultArtifact(coords);
+            dependencies.add(new Dependency(artifact, "compile"));
+        }
+        return dependencies;
+    }
+
+    /**
+     * The subtree of a root dependency in a collected graph.
+     *
+     * @param keys the "groupId:artifactId" of every node reached, conflict losers included
+     * @param winners the winning, non-excluded nodes, in preorder
+     */
+    private record RootSubtree(Set<String> keys, List<DependencyNode> winners) {
+    }
+
+    /**
+     * A lock entry being assembled, either collected (with a node to download) or reused (with a path).
+     *
+     * @param node the collected node, or null if reused
+     * @param path the reused path, or null if collected
+     * @param roots the indexes of the roots the artifact is reached from
+     */
+    private record PendingEntry(DependencyNode node, String path, List<Integer> roots) {
+
+        private PendingEntry(DependencyNode node, String path) {
+            this(node, path, new ArrayList<>());
+        }
+    }
+}
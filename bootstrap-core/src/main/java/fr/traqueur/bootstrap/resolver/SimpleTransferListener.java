@@ -11,7 +11,11 @@ import java.util.Locale;
 /**
  * A simple transfer listener that prints download progress to the console.
  * This provides user feedback during dependency resolution.
+ *
+ * @deprecated writes to the console on every progress callback, which interleaves with parallel transfers.
+ * Use {@link fr.traqueur.bootstrap.resolver.progress.AggregatingTransferListener} instead.
  */
+@Deprecated
 public class SimpleTransferListener extends AbstractTransferListener {
 
     private static final DecimalFormat FORMAT = new DecimalFormat("0.0", DecimalFormatSymbols.getInstance(Locale.ROOT));
@@ -0,0 +1,202 @@
+package fr.traqueur.bootstrap.resolver.progress;
+
+import org.eclipse.aether.transfer.AbstractTransferListener;
+import org.eclipse.aether.transfer.TransferEvent;
+import org.eclipse.aether.transfer.TransferResource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A transfer listener that aggregates progress across parallel transfers and
+ * hands it to a {@link ProgressRenderer} at a fixed rate.
+ *
+ * <p>Progress callbacks only update per-transfer counters: no formatting, no I/O and no locking
+ * happens on the transfer threads. A single daemon thread samples the counters every
+ * {@code interval} and asks the renderer to draw a {@link ProgressSnapshot}.
+ * The reporting thread is started on the first transfer and stopped by {@link #finish()}.</p>
+ */
+public class AggregatingTransferListener extends AbstractTransferListener {
+
+    private static final Duration DEFAULT_INTERVAL = Duration.ofMillis(500);
+
+    private final ProgressRenderer renderer;
+    private final long intervalNanos;
+    private final Map<TransferResource, Transfer> transfers = new ConcurrentHashMap<>();
+    private final LongAdder finishedBytes = new LongAdder();
+    private final LongAdder finishedExpectedBytes = new LongAdder();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong startNanos = new AtomicLong();
+    private volatile ScheduledExecutorService ticker;
+
+    /**
+     * Creates a new listener reporting every 500 milliseconds.
+     *
+     * @param renderer the renderer receiving the aggregated progress
+     */
+    public AggregatingTransferListener(ProgressRenderer renderer) {
+        this(renderer, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Creates a new listener.
+     *
+     * @param renderer the renderer receiving the aggregated progress
+     * @param interval the delay between two progress reports
+     */
+    public AggregatingTransferListener(ProgressRenderer renderer, Duration interval) {
+        this.renderer = renderer;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    @Override
+    public void transferInitiated(TransferEvent event) {
+        if (startNanos.compareAndSet(0, System.nanoTime())) {
+            startTicker();
+        }
+    }
+
+    @Override
+    public void transferStarted(TransferEvent event) {
+        TransferResource resource = event.getResource();
+        transfers.put(resource, new Transfer(resource.getContentLength()));
+        renderer.transferStarted(location(resource), resource.getContentLength());
+    }
+
+    @Override
+    public void transferProgressed(TransferEvent event) {
+        Transfer transfer = transfers.get(event.getResource());
+        if (transfer != null) {
+            transfer.transferred = event.getTransferredBytes();
+        }
+    }
+
+    @Override
+    public void transferSucceeded(TransferEvent event) {
+        TransferResource resource = event.getResource();
+        release(resource, event.getTransferredBytes());
+        completed.incrementAndGet();
+        renderer.transferSucceeded(location(resource), event.getTransferredBytes());
+    }
+
+    @Override
+    public void transferFailed(TransferEvent event) {
+        TransferResource resource = event.getResource();
+        release(resource, event.getTransferredBytes());
+        failed.incrementAndGet();
+        renderer.transferFailed(location(resource), event.getException());
+    }
+
+    /**
+     * Stops periodic reporting and hands the final snapshot to the renderer, once any report
+     * in progress is over.
+     * The listener can be reused afterwards; the next transfer starts a new reporting period.
+     */
+    public void finish() {
+        ScheduledExecutorService current = ticker;
+        ticker = null;
+        if (current != null) {
+            current.shutdownNow();
+            // A report may be rendering right now: let it end so that the summary is the last line
+            try {
+                current.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (startNanos.get() != 0) {
+            renderer.finished(snapshot());
+        }
+        transfers.clear();
+        finishedBytes.reset();
+        finishedExpectedBytes.reset();
+        completed.set(0);
+        failed.set(0);
+        startNanos.set(0);
+    }
+
+    /**
+     * Samples the current counters.
+     *
+     * @return the aggregated state of all transfers
+     */
+    public ProgressSnapshot snapshot() {
+        long transferred = finishedBytes.sum();
+        long expected = finishedExpectedBytes.sum();
+        int active = 0;
+        for (Transfer transfer : transfers.values()) {
+            active++;
+            transferred += transfer.transferred;
+            if (transfer.contentLength > 0) {
+                expected += transfer.contentLength;
+            }
+        }
+        long start = startNanos.get();
+        long elapsed = start == 0 ? 0 : System.nanoTime() - start;
+        return new ProgressSnapshot(active, completed.get(), failed.get(), transferred, expected, elapsed);
+    }
+
+    /**
+     * Moves a finished transfer from the active set into the aggregated totals.
+     *
+     * @param resource    the finished resource
+     * @param transferred the final number of bytes transferred
+     */
+    private void release(TransferResource resource, long transferred) {
+        Transfer transfer = transfers.remove(resource);
+        finishedBytes.add(Math.max(transferred, 0));
+        if (transfer != null && transfer.contentLength > 0) {
+            finishedExpectedBytes.add(transfer.contentLength);
+        }
+    }
+
+    /**
+     * Starts the daemon thread driving periodic progress reports.
+     */
+    private void startTicker() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bootstrap-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            ProgressSnapshot snapshot = snapshot();
+            if (snapshot.activeTransfers() > 0) {
+                renderer.progress(snapshot);
+            }
+        }, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        ticker = executor;
+    }
+
+    /**
+     * Builds the full location of a resource.
+     *
+     * @param resource the transfer resource
+     * @return the repository URL followed by the resource name
+     */
+    private static String location(TransferResource resource) {
+        return resource.getRepositoryUrl() + resource.getResourceName();
+    }
+
+    /**
+     * Mutable byte counter of a single in-flight transfer.
+     * Written by the transfer thread only, read by the reporting thread.
+     */
+    private static final class Transfer {
+
+        private final long contentLength;
+        private volatile long transferred;
+
+        private Transfer(long contentLength) {
+            this.contentLength = contentLength;
+        }
+    }
+}
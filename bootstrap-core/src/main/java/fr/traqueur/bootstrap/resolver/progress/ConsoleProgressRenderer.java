@@ -0,0 +1,124 @@
+package fr.traqueur.bootstrap.resolver.progress;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Renders download progress as a single console line refreshed at a fixed rate.
+ * Completed and failed transfers are printed on their own line, so that output
+ * from parallel transfers never interleaves with the progress line.
+ */
+final class ConsoleProgressRenderer implements ProgressRenderer {
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private int lastLineLength;
+
+    /**
+     * Creates a new console renderer.
+     *
+     * @param out the stream receiving progress and completion lines
+     * @param err the stream receiving failures
+     */
+    ConsoleProgressRenderer(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    @Override
+    public synchronized void transferSucceeded(String resource, long bytes) {
+        if (bytes >= 0) {
+            println("[Complete] " + fileName(resource) + " (" + formatBytes(bytes) + ")");
+        }
+    }
+
+    @Override
+    public synchronized void transferFailed(String resource, Exception cause) {
+        clearLine();
+        err.println("[Failed] " + resource + (cause != null ? ": " + cause.getMessage() : ""));
+    }
+
+    @Override
+    public synchronized void progress(ProgressSnapshot snapshot) {
+        StringBuilder line = new StringBuilder("[Progress] ")
+            .append(snapshot.activeTransfers()).append(" active, ")
+            .append(formatBytes(snapshot.transferredBytes()));
+        if (snapshot.expectedBytes() > 0) {
+            line.append(" / ").append(formatBytes(snapshot.expectedBytes()));
+        }
+        line.append(" at ").append(formatBytes(snapshot.bytesPerSecond())).append("/s");
+        long eta = snapshot.etaSeconds();
+        if (eta >= 0) {
+            line.append(", ETA ").append(eta).append('s');
+        }
+
+        int padding = lastLineLength - line.length();
+        lastLineLength = line.length();
+        out.print('\r');
+        out.print(line);
+        if (padding > 0) {
+            out.print(" ".repeat(padding));
+        }
+        out.flush();
+    }
+
+    @Override
+    public synchronized void finished(ProgressSnapshot snapshot) {
+        if (snapshot.completedTransfers() == 0 && snapshot.failedTransfers() == 0) {
+            return;
+        }
+        println("[Download] " + snapshot.completedTransfers() + " transferred, "
+            + snapshot.failedTransfers() + " failed, "
+            + formatBytes(snapshot.transferredBytes()) + " in "
+            + String.format(Locale.ROOT, "%.1f", snapshot.elapsedNanos() / 1_000_000_000.0) + "s");
+    }
+
+    /**
+     * Prints a line, erasing the current progress line first.
+     *
+     * @param line the line to print
+     */
+    private void println(String line) {
+        clearLine();
+        out.println(line);
+    }
+
+    /**
+     * Erases the progress line if one is currently displayed.
+     */
+    private void clearLine() {
+        if (lastLineLength > 0) {
+            out.print('\r');
+            out.print(" ".repeat(lastLineLength));
+            out.print('\r');
+            lastLineLength = 0;
+        }
+    }
+
+    /**
+     * Extracts the file name of a resource location.
+     *
+     * @param resource the resource location
+     * @return the last path segment
+     */
+    private static String fileName(String resource) {
+        int index = resource.lastIndexOf('/');
+        return index >= 0 ? resource.substring(index + 1) : resource;
+    }
+
+    /**
+     * Formats a byte count into a human-readable string.
+     *
+     * @param bytes the number of bytes
+     * @return a formatted string (e.g., "1.5 MB")
+     */
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        } else {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package fr.traqueur.bootstrap.resolver.progress;
+
+import java.io.PrintStream;
+
+/**
+ * Renders download events as JSON lines, one object per line, for log aggregation.
+ *
+ * <p>Every line carries an {@code event} field, one of {@code started}, {@code succeeded},
+ * {@code failed}, {@code progress} or {@code finished}. Progress lines are emitted at the
+ * reporting rate of the listener, never once per received chunk.</p>
+ */
+final class JsonProgressRenderer implements ProgressRenderer {
+
+    private final PrintStream out;
+
+    /**
+     * Creates a new JSON renderer.
+     *
+     * @param out the stream receiving the JSON lines
+     */
+    JsonProgressRenderer(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void transferStarted(String resource, long contentLength) {
+        out.println("{\"event\":\"started\",\"resource\":\"" + escape(resource) + "\",\"contentLength\":" + contentLength + "}");
+    }
+
+    @Override
+    public void transferSucceeded(String resource, long bytes) {
+        out.println("{\"event\":\"succeeded\",\"resource\":\"" + escape(resource) + "\",\"bytes\":" + bytes + "}");
+    }
+
+    @Override
+    public void transferFailed(String resource, Exception cause) {
+        String message = cause != null && cause.getMessage() != null ? cause.getMessage() : "";
+        out.println("{\"event\":\"failed\",\"resource\":\"" + escape(resource) + "\",\"error\":\"" + escape(message) + "\"}");
+    }
+
+    @Override
+    public void progress(ProgressSnapshot snapshot) {
+        out.println(toJson("progress", snapshot));
+    }
+
+    @Override
+    public void finished(ProgressSnapshot snapshot) {
+        out.println(toJson("finished", snapshot));
+    }
+
+    /**
+     * Serializes a snapshot into a single JSON line.
+     *
+     * @param event    the event name
+     * @param snapshot the snapshot to serialize
+     * @return the JSON object
+     */
+    private static String toJson(String event, ProgressSnapshot snapshot) {
+        return "{\"event\":\"" + event + "\""
+            + ",\"active\":" + snapshot.activeTransfers()
+            + ",\"completed\":" + snapshot.completedTransfers()
+            + ",\"failed\":" + snapshot.failedTransfers()
+            + ",\"transferredBytes\":" + snapshot.transferredBytes()
+            + ",\"expectedBytes\":" + snapshot.expectedBytes()
+            + ",\"bytesPerSecond\":" + snapshot.bytesPerSecond()
+            + ",\"etaSeconds\":" + snapshot.etaSeconds()
+            + ",\"elapsedMillis\":" + snapshot.elapsedNanos() / 1_000_000
+            + "}";
+    }
+
+    /**
+     * Escapes a string for inclusion in a JSON string literal.
+     *
+     * @param value the raw value
+     * @return the escaped value
+     */
+    private static String escape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
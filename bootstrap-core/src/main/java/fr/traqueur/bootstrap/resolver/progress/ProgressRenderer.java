@@ -0,0 +1,56 @@
+package fr.traqueur.bootstrap.resolver.progress;
+
+/**
+ * Service provider interface for rendering download progress.
+ *
+ * <p>Per-transfer callbacks ({@link #transferStarted}, {@link #transferSucceeded}, {@link #transferFailed})
+ * are invoked from the resolver threads, once per artifact. {@link #progress(ProgressSnapshot)} is invoked
+ * at a fixed rate from a single reporting thread, never once per received chunk.
+ * Implementations must therefore be thread-safe, but are never on the hot path of a transfer.</p>
+ *
+ * @see ProgressRenderers
+ */
+public interface ProgressRenderer {
+
+    /**
+     * Called when a transfer starts.
+     *
+     * @param resource      the resource location (repository URL and resource name)
+     * @param contentLength the announced content length, or -1 if unknown
+     */
+    default void transferStarted(String resource, long contentLength) {
+    }
+
+    /**
+     * Called when a transfer completes successfully.
+     *
+     * @param resource the resource location
+     * @param bytes    the number of bytes transferred
+     */
+    default void transferSucceeded(String resource, long bytes) {
+    }
+
+    /**
+     * Called when a transfer fails.
+     *
+     * @param resource the resource location
+     * @param cause    the failure cause, may be null
+     */
+    default void transferFailed(String resource, Exception cause) {
+    }
+
+    /**
+     * Called periodically while at least one transfer is in flight.
+     *
+     * @param snapshot the aggregated state of all transfers
+     */
+    void progress(ProgressSnapshot snapshot);
+
+    /**
+     * Called once when the resolution that triggered the transfers is over.
+     *
+     * @param snapshot the final aggregated state
+     */
+    default void finished(ProgressSnapshot snapshot) {
+    }
+}
@@ -0,0 +1,104 @@
+package fr.traqueur.bootstrap.resolver.progress;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Factory for the built-in {@link ProgressRenderer} implementations.
+ *
+ * <p>The renderer used by default is selected with the {@code bootstraploader.progress} system property
+ * or the {@code BOOTSTRAP_LOADER_PROGRESS} environment variable:</p>
+ * <ul>
+ *   <li>{@code console} (default) - a single, periodically refreshed progress line on {@code System.out}</li>
+ *   <li>{@code json} - one JSON object per line on {@code System.out}, suited to production logs</li>
+ *   <li>{@code none} - no output at all</li>
+ * </ul>
+ *
+ * <p>In {@code json} mode, the plain {@code [Bootstrap]} messages of the loader are printed on
+ * {@code System.err} instead (see {@link #messages()}), so that standard output only carries JSON lines.</p>
+ */
+public final class ProgressRenderers {
+
+    private static final String PROGRESS_PROPERTY = "bootstraploader.progress";
+    private static final String PROGRESS_ENV = "BOOTSTRAP_LOADER_PROGRESS";
+
+    private static final ProgressRenderer NONE = snapshot -> {
+    };
+
+    private ProgressRenderers() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Gets the renderer configured for this process.
+     * Priority: system property > environment variable > console.
+     * An unknown mode is only a display setting mistake: it is reported and the console renderer is used.
+     *
+     * @return the configured renderer
+     */
+    public static ProgressRenderer fromEnvironment() {
+        String mode = configuredMode();
+        if (mode == null) {
+            return console();
+        }
+        return switch (mode) {
+            case "console" -> console();
+            case "json" -> json();
+            case "none", "silent" -> none();
+            default -> {
+                messages().println("[Bootstrap] Warning: Unknown progress mode '" + mode + "', using console");
+                yield console();
+            }
+        };
+    }
+
+    /**
+     * Gets the stream receiving the plain {@code [Bootstrap]} messages of the loader.
+     *
+     * @return {@code System.err} in {@code json} mode, {@code System.out} otherwise
+     */
+    public static PrintStream messages() {
+        return "json".equals(configuredMode()) ? System.err : System.out;
+    }
+
+    /**
+     * Gets a renderer printing a human-readable progress line to the console.
+     *
+     * @return a new console renderer
+     */
+    public static ProgressRenderer console() {
+        return new ConsoleProgressRenderer(System.out, System.err);
+    }
+
+    /**
+     * Gets a renderer printing machine-readable JSON lines to the console.
+     *
+     * @return a new JSON renderer
+     */
+    public static ProgressRenderer json() {
+        return new JsonProgressRenderer(System.out);
+    }
+
+    /**
+     * Gets a renderer that discards everything.
+     *
+     * @return the silent renderer
+     */
+    public static ProgressRenderer none() {
+        return NONE;
+    }
+
+    /**
+     * Reads the configured progress mode.
+     * Priority: system property > environment variable.
+     *
+     * @return the trimmed, lowercase mode, or null if none is configured
+     */
+    private static String configuredMode() {
+        String mode = System.getProperty(PROGRESS_PROPERTY);
+        if (mode == null) {
+            mode = System.getenv(PROGRESS_ENV);
+        }
+        return mode == null ? null : mode.trim().toLowerCase(Locale.ROOT);
+    }
+}
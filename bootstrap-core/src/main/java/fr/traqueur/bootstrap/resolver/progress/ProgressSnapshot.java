@@ -0,0 +1,46 @@
+package fr.traqueur.bootstrap.resolver.progress;
+
+/**
+ * Immutable view of the aggregated transfer state at a given instant.
+ * Snapshots are produced by {@link AggregatingTransferListener} and handed to a {@link ProgressRenderer}.
+ *
+ * @param activeTransfers    the number of transfers currently in flight
+ * @param completedTransfers the number of transfers that succeeded
+ * @param failedTransfers    the number of transfers that failed
+ * @param transferredBytes   the total number of bytes transferred so far, across all transfers
+ * @param expectedBytes      the sum of the announced content lengths, or 0 if none is known
+ * @param elapsedNanos       the time elapsed since the first transfer was initiated
+ */
+public record ProgressSnapshot(int activeTransfers,
+                               int completedTransfers,
+                               int failedTransfers,
+                               long transferredBytes,
+                               long expectedBytes,
+                               long elapsedNanos) {
+
+    /**
+     * Gets the average throughput since the first transfer started.
+     *
+     * @return the throughput in bytes per second, or 0 if nothing was measured yet
+     */
+    public long bytesPerSecond() {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return (long) (transferredBytes * 1_000_000_000.0 / elapsedNanos);
+    }
+
+    /**
+     * Estimates the remaining time based on the average throughput.
+     *
+     * @return the estimated remaining time in seconds, or -1 if it cannot be estimated
+     */
+    public long etaSeconds() {
+        long rate = bytesPerSecond();
+        long remaining = expectedBytes - transferredBytes;
+        if (rate <= 0 || expectedBytes <= 0 || remaining < 0) {
+            return -1;
+        }
+        return remaining / rate;
+    }
+}
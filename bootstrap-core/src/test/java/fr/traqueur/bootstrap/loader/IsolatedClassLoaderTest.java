@@ -0,0 +1,111 @@
+package fr.traqueur.bootstrap.loader;
+
+import fr.traqueur.bootstrap.testing.SyntheticRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the lookup and lifecycle of the isolated ClassLoader on jars of a synthetic repository.
+ */
+class IsolatedClassLoaderTest {
+
+    private static final String MARKER = SyntheticRepository.DEFAULT_GROUP_ID + ".lib_0_0.Marker";
+
+    @TempDir
+    Path tempDir;
+
+    private Path jar;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        SyntheticRepository repository = SyntheticRepository.builder()
+            .roots(1)
+            .depth(1)
+            .jarSize(64)
+            .build(tempDir.resolve("repository"));
+        jar = repository.directory()
+            .resolve(SyntheticRepository.DEFAULT_GROUP_ID.replace('.', '/'))
+            .resolve("lib-0-0/1.0.0/lib-0-0-1.0.0.jar");
+        assertTrue(Files.isRegularFile(jar));
+    }
+
+    @Test
+    void unreadableJarIsSkipped() throws Exception {
+        Path broken = Files.write(tempDir.resolve("broken.jar"), new byte[]{1, 2, 3, 4});
+
+        try (IsolatedClassLoader loader = new IsolatedClassLoader(List.of(broken, jar), ClassLoader.getPlatformClassLoader())) {
+            assertSame(loader, loader.loadClass(MARKER).getClassLoader());
+        }
+    }
+
+    @Test
+    void resourceStreamIsReadThroughTheEntry() throws Exception {
+        String name = MARKER.substring(0, MARKER.lastIndexOf('.')).replace('.', '/') + "/padding.bin";
+        byte[] expected;
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            expected = jarFile.getInputStream(jarFile.getJarEntry(name)).readAllBytes();
+        }
+
+        try (IsolatedClassLoader loader = new IsolatedClassLoader(List.of(jar), ClassLoader.getPlatformClassLoader())) {
+            try (InputStream stream = loader.getResourceAsStream(name)) {
+                assertArrayEquals(expected, stream.readAllBytes());
+            }
+            // The jar is only held by the entry, so it can be closed while idle
+            assertEquals(1, loader.closeIdleJars(Duration.ZERO));
+            assertNull(loader.getResourceAsStream("missing.txt"));
+        }
+    }
+
+    @Test
+    void largeResourceIsStreamedFromTheJar() throws Exception {
+        Path models = tempDir.resolve("models.jar");
+        byte[] expected = new byte[ClassPathEntry.BUFFERED_RESOURCE_SIZE + 1];
+        Arrays.fill(expected, (byte) 7);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(models))) {
+            out.putNextEntry(new ZipEntry("models/model.bin"));
+            out.write(expected);
+            out.closeEntry();
+        }
+
+        try (IsolatedClassLoader loader = new IsolatedClassLoader(List.of(models), ClassLoader.getPlatformClassLoader())) {
+            try (InputStream stream = loader.getResourceAsStream("models/model.bin")) {
+                // The jar is held open by the stream
+                assertEquals(0, loader.closeIdleJars(Duration.ZERO));
+                assertArrayEquals(expected, stream.readAllBytes());
+            }
+            assertEquals(1, loader.closeIdleJars(Duration.ZERO));
+        }
+    }
+
+    @Test
+    void closeUnregistersTelemetry() throws Exception {
+        IsolatedClassLoader loader = new IsolatedClassLoader(List.of(jar), ClassLoader.getPlatformClassLoader());
+        ObjectName name = loader.telemetry().register();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        loader.close();
+
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
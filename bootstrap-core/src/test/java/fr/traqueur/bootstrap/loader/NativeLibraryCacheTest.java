@@ -0,0 +1,98 @@
+package fr.traqueur.bootstrap.loader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the selection of native libraries by directory name, and the reuse of extracted libraries by several caches.
+ */
+class NativeLibraryCacheTest {
+
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1_000_000_000_000L);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void architecturesAreMatchedAsWholeTokens() {
+        NativeLibraryCache cache = new NativeLibraryCache(tempDir);
+
+        // "harmony" holds "arm" and "chaix" holds "aix", but neither names a platform
+        assertEquals(0, cache.select(List.of("harmony/libfoo.so")));
+        assertEquals(0, cache.select(List.of("chaix/libfoo.so")));
+        assertEquals(-1, cache.select(List.of("aix-ppc64/libfoo.so", "win32-x86-64/libfoo.so", "freebsd13/libfoo.so")));
+    }
+
+    @Test
+    void currentArchitectureIsPreferred() {
+        NativeLibraryCache cache = new NativeLibraryCache(tempDir);
+        String arch = System.getProperty("os.arch");
+
+        assertEquals(1, cache.select(List.of("natives/libfoo.so", "natives/linux-" + arch + "/libfoo.so")));
+    }
+
+    @Test
+    void indexIsSharedByCaches() throws IOException {
+        Path jar = nativesJar();
+        Path directory = tempDir.resolve("cache");
+
+        try (ClassPathEntry entry = new ClassPathEntry(jar, jar.toUri().toURL())) {
+            // Two JVMs sharing the directory, extracting libraries in turn
+            NativeLibraryCache first = new NativeLibraryCache(directory);
+            NativeLibraryCache second = new NativeLibraryCache(directory);
+            Path foo = first.extract(entry, "natives/libfoo.so");
+            second.extract(entry, "natives/libbar.so");
+            first.extract(entry, "natives/libbaz.so");
+            Files.setLastModifiedTime(foo, OLD_TIME);
+
+            // The second cache reuses the library extracted by the first, without writing it again
+            assertEquals(foo, second.extract(entry, "natives/libfoo.so"));
+            assertEquals(OLD_TIME, Files.getLastModifiedTime(foo));
+        }
+
+        try (Stream<Path> indexFiles = Files.list(directory.resolve("index"))) {
+            assertEquals(3, indexFiles.count());
+        }
+    }
+
+    @Test
+    void truncatedLibraryIsExtractedAgain() throws IOException {
+        Path jar = nativesJar();
+        Path directory = tempDir.resolve("cache");
+
+        try (ClassPathEntry entry = new ClassPathEntry(jar, jar.toUri().toURL())) {
+            Path foo = new NativeLibraryCache(directory).extract(entry, "natives/libfoo.so");
+            Files.write(foo, new byte[0]);
+
+            assertEquals(foo, new NativeLibraryCache(directory).extract(entry, "natives/libfoo.so"));
+            assertArrayEquals("libfoo.so".getBytes(), Files.readAllBytes(foo));
+        }
+    }
+
+    /**
+     * Builds a jar holding three libraries, each containing its own file name.
+     */
+    private Path nativesJar() throws IOException {
+        Path jar = tempDir.resolve("natives.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (String name : List.of("libfoo.so", "libbar.so", "libbaz.so")) {
+                out.putNextEntry(new ZipEntry("natives/" + name));
+                out.write(name.getBytes());
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
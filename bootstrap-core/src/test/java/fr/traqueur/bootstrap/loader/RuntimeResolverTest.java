@@ -0,0 +1,66 @@
+package fr.traqueur.bootstrap.loader;
+
+import fr.traqueur.bootstrap.resolver.ArtifactResolver;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderers;
+import fr.traqueur.bootstrap.testing.SyntheticRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the failures of runtime requests, resolved against a synthetic repository.
+ */
+class RuntimeResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SyntheticRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = SyntheticRepository.builder()
+            .roots(2)
+            .depth(1)
+            .jarSize(64)
+            .build(tempDir.resolve("repository"));
+    }
+
+    @Test
+    void failingSetOnlyFailsItsRequest() throws Exception {
+        try (RuntimeResolver resolver = newResolver()) {
+            CompletableFuture<IsolatedClassLoader> missing = resolver.attachAsync(
+                List.of(SyntheticRepository.DEFAULT_GROUP_ID + ":missing:1.0.0"));
+            CompletableFuture<IsolatedClassLoader> found = resolver.attachAsync(List.of(repository.roots().getFirst()));
+
+            try (IsolatedClassLoader loader = found.join()) {
+                assertNotNull(loader);
+            }
+            assertThrows(CompletionException.class, missing::join);
+        }
+    }
+
+    @Test
+    void closedResolverFailsRequests() {
+        RuntimeResolver resolver = newResolver();
+        resolver.close();
+
+        assertTrue(resolver.attachAsync(repository.roots()).isCompletedExceptionally());
+        assertThrows(IllegalStateException.class, () -> resolver.attach(repository.roots()));
+    }
+
+    private RuntimeResolver newResolver() {
+        return new RuntimeResolver(() -> new ArtifactResolver(tempDir.resolve("cache"), List.of(repository.fileRepository()),
+            ProgressRenderers.none()), ClassLoader.getPlatformClassLoader(), List.of());
+    }
+}
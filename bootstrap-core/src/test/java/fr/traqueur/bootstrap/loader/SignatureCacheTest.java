@@ -0,0 +1,198 @@
+package fr.traqueur.bootstrap.loader;
+
+import jdk.security.jarsigner.JarSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.CertPath;
+import java.security.cert.CertificateFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that signed jars are verified once and then served from their record, and that
+ * changed, tampered and unsigned jars are never served from a record.
+ */
+class SignatureCacheTest {
+
+    private static final String RESOURCE = "data/payload.txt";
+    private static final byte[] PAYLOAD = "signed payload".getBytes(StandardCharsets.UTF_8);
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1_000_000_000_000L);
+
+    @TempDir
+    Path tempDir;
+
+    private Path unsigned;
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        unsigned = tempDir.resolve("unsigned.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(unsigned))) {
+            // Stored, so that the payload can be found and altered in the signed jar
+            ZipEntry entry = new ZipEntry(RESOURCE);
+            CRC32 crc = new CRC32();
+            crc.update(PAYLOAD);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(PAYLOAD.length);
+            entry.setCrc(crc.getValue());
+            out.putNextEntry(entry);
+            out.write(PAYLOAD);
+            out.closeEntry();
+        }
+        directory = tempDir.resolve("signatures");
+    }
+
+    @Test
+    void signedJarIsVerifiedOnce() throws Exception {
+        Path jar = sign(unsigned);
+
+        SignatureCache first = new SignatureCache(directory);
+        SignatureCache.JarSignatures verified = first.lookup(jar);
+        first.save();
+        assertTrue(verified.isSigned());
+        Path record = single(records());
+        Files.setLastModifiedTime(record, OLD_TIME);
+
+        // A new start hashes the jar and serves its record, without verifying and writing it again
+        SignatureCache.JarSignatures cached = new SignatureCache(directory).lookup(jar);
+        assertNotNull(cached.signersOf(RESOURCE));
+        assertEquals(Arrays.asList(verified.signersOf(RESOURCE)), Arrays.asList(cached.signersOf(RESOURCE)));
+        assertEquals(OLD_TIME, Files.getLastModifiedTime(record));
+    }
+
+    @Test
+    void changedContentIsVerifiedAgain() throws Exception {
+        Path jar = sign(unsigned);
+        SignatureCache first = new SignatureCache(directory);
+        first.lookup(jar);
+        first.save();
+
+        // Same size and modification time, different content: the time of the first local header
+        FileTime modified = Files.getLastModifiedTime(jar);
+        byte[] content = Files.readAllBytes(jar);
+        content[10] ^= 1;
+        Files.write(jar, content);
+        Files.setLastModifiedTime(jar, modified);
+
+        assertTrue(new SignatureCache(directory).lookup(jar).isSigned());
+        assertEquals(2, records().size());
+    }
+
+    @Test
+    void tamperedJarFailsVerification() throws Exception {
+        Path jar = sign(unsigned);
+        SignatureCache first = new SignatureCache(directory);
+        first.lookup(jar);
+        first.save();
+
+        FileTime modified = Files.getLastModifiedTime(jar);
+        byte[] content = Files.readAllBytes(jar);
+        content[indexOf(content, PAYLOAD)] ^= 1;
+        Files.write(jar, content);
+        Files.setLastModifiedTime(jar, modified);
+
+        assertThrows(SecurityException.class, () -> new SignatureCache(directory).lookup(jar));
+        assertEquals(1, records().size());
+    }
+
+    @Test
+    void indexIsMergedOnSave() throws Exception {
+        Path jar = sign(unsigned);
+        Path copy = Files.copy(jar, tempDir.resolve("copy.jar"));
+
+        // Two JVMs sharing the directory, both started before either saves
+        SignatureCache first = new SignatureCache(directory);
+        SignatureCache second = new SignatureCache(directory);
+        first.lookup(jar);
+        first.save();
+        assertTrue(second.lookup(copy).isSigned());
+        second.save();
+
+        assertEquals(2, Files.readAllLines(directory.resolve("signatures.idx")).size());
+        assertEquals(1, records().size());
+    }
+
+    @Test
+    void unsignedJarHasNoRecord() throws Exception {
+        SignatureCache cache = new SignatureCache(directory);
+
+        assertFalse(cache.lookup(unsigned).isSigned());
+        cache.save();
+
+        assertTrue(records().isEmpty());
+    }
+
+    /**
+     * Signs a jar with a self-signed certificate generated by keytool.
+     */
+    private Path sign(Path jar) throws Exception {
+        Path keyStore = tempDir.resolve("keystore.p12");
+        char[] password = "changeit".toCharArray();
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+            "-genkeypair", "-keystore", keyStore.toString(), "-storetype", "PKCS12", "-storepass", "changeit",
+            "-alias", "test", "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=Test", "-validity", "1")
+            .redirectErrorStream(true)
+            .start();
+        keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertEquals(0, keytool.waitFor());
+
+        KeyStore store = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(keyStore)) {
+            store.load(in, password);
+        }
+        PrivateKey key = (PrivateKey) store.getKey("test", password);
+        CertPath certPath = CertificateFactory.getInstance("X.509")
+            .generateCertPath(List.of(store.getCertificateChain("test")));
+
+        Path signed = tempDir.resolve("signed.jar");
+        try (ZipFile zipFile = new ZipFile(jar.toFile()); OutputStream out = Files.newOutputStream(signed)) {
+            new JarSigner.Builder(key, certPath).build().sign(zipFile, out);
+        }
+        return signed;
+    }
+
+    private List<Path> records() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".signers")).toList();
+        }
+    }
+
+    private static Path single(List<Path> paths) {
+        assertEquals(1, paths.size());
+        return paths.getFirst();
+    }
+
+    private static int indexOf(byte[] content, byte[] part) {
+        for (int i = 0; i + part.length <= content.length; i++) {
+            if (Arrays.equals(content, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Content not found");
+    }
+}
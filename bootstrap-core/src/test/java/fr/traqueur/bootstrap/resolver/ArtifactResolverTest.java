@@ -0,0 +1,215 @@
+package fr.traqueur.bootstrap.resolver;
+
+import fr.traqueur.bootstrap.config.DependencyLock;
+import fr.traqueur.bootstrap.config.DependencyManifest.Repository;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderers;
+import fr.traqueur.bootstrap.testing.RepositoryServer;
+import fr.traqueur.bootstrap.testing.SyntheticRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks incremental re-resolution against a synthetic repository: after each manifest change,
+ * the lock resolved from the previous lock must list the same artifacts as a full resolution.
+ * The repository is read from {@code file://}, and over HTTP from a local {@link RepositoryServer}.
+ */
+class ArtifactResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SyntheticRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Roots with disjoint subtrees, and artifacts below them published in two versions
+        repository = SyntheticRepository.builder()
+            .roots(4)
+            .depth(3)
+            .fanOut(2)
+            .maxWidth(16)
+            .jarSize(256)
+            .conflicts(6)
+            .build(tempDir.resolve("repository"));
+    }
+
+    @Test
+    void addedRootIsResolvedIncrementally() throws Exception {
+        List<String> roots = repository.roots();
+        DependencyLock previous = resolve(roots.subList(0, 3), null);
+
+        DependencyLock incremental = resolve(roots, previous);
+
+        assertEquals(coordinates(full(roots)), coordinates(incremental));
+        assertTrue(incremental.hasGraph());
+    }
+
+    @Test
+    void removedRootIsDroppedIncrementally() throws Exception {
+        List<String> roots = repository.roots();
+        DependencyLock previous = resolve(roots, null);
+        List<String> remaining = List.of(roots.get(0), roots.get(1), roots.get(3));
+
+        DependencyLock incremental = resolve(remaining, previous);
+
+        assertEquals(coordinates(full(remaining)), coordinates(incremental));
+        String removedArtifact = artifactId(roots.get(2));
+        assertTrue(coordinates(incremental).stream().noneMatch(c -> c.contains(":" + removedArtifact + ":")));
+    }
+
+    @Test
+    void changedVersionRemediatesReusedSubtree() throws Exception {
+        List<String> roots = repository.roots();
+        DependencyLock all = resolve(roots, null);
+
+        // A conflicting artifact reached by a root, pinned next to it in its first version
+        String conflicting = conflictingArtifactIds().getFirst();
+        String owner = all.graph().stream()
+            .filter(subtree -> subtree.keys().contains(SyntheticRepository.DEFAULT_GROUP_ID + ":" + conflicting))
+            .map(DependencyLock.Subtree::root)
+            .findFirst()
+            .orElseThrow();
+        String other = roots.stream().filter(root -> !root.equals(owner)).findFirst().orElseThrow();
+        String pinned = SyntheticRepository.DEFAULT_GROUP_ID + ":" + conflicting;
+        DependencyLock previous = resolve(List.of(owner, other, pinned + ":1.0.0"), null);
+
+        // Pinning the second version must change the version used by the owner's subtree too
+        List<String> changed = List.of(owner, other, pinned + ":2.0.0");
+        DependencyLock incremental = resolve(changed, previous);
+
+        assertEquals(coordinates(full(changed)), coordinates(incremental));
+        assertTrue(coordinates(incremental).contains(pinned + ":jar:2.0.0"));
+        assertFalse(coordinates(incremental).contains(pinned + ":jar:1.0.0"));
+    }
+
+    @Test
+    void httpResolutionMatchesFileResolution() throws Exception {
+        List<String> roots = repository.roots();
+        try (RepositoryServer server = RepositoryServer.builder(repository.directory()).start()) {
+            Path cacheDir = tempDir.resolve("cache-http");
+            DependencyLock lock;
+            try (ArtifactResolver resolver = new ArtifactResolver(cacheDir, List.of(server.repository()), ProgressRenderers.none())) {
+                lock = resolver.resolveLock(roots);
+            }
+            assertEquals(coordinates(full(roots)), coordinates(lock));
+            int requests = server.requests();
+            assertTrue(requests > 0);
+
+            // Removing a root reuses the previous lock and the downloaded artifacts, without any request
+            List<String> remaining = roots.subList(0, roots.size() - 1);
+            try (ArtifactResolver resolver = new ArtifactResolver(cacheDir, List.of(server.repository()), ProgressRenderers.none())) {
+                DependencyLock incremental = resolver.resolveLock(remaining, List.of(), DependencyLock.parse(lock.toJson()));
+                assertEquals(coordinates(full(remaining)), coordinates(incremental));
+            }
+            assertEquals(requests, server.requests());
+        }
+    }
+
+    @Test
+    void dependencySetsAreMediatedIndependently() throws Exception {
+        String pinned = SyntheticRepository.DEFAULT_GROUP_ID + ":" + conflictingArtifactIds().getFirst();
+        List<String> older = List.of(repository.roots().getFirst(), pinned + ":1.0.0");
+        List<String> newer = List.of(pinned + ":2.0.0");
+
+        try (ArtifactResolver resolver = new ArtifactResolver(tempDir.resolve("cache"), repositories(), ProgressRenderers.none())) {
+            List<List<Path>> results = resolver.resolveAll(List.of(older, newer), Set.of());
+
+            // Each set gets the versions it would get if resolved alone
+            assertEquals(fileNames(resolver.resolve(older)), fileNames(results.get(0)));
+            assertEquals(fileNames(resolver.resolve(newer)), fileNames(results.get(1)));
+            assertTrue(fileNames(results.get(1)).contains(artifactId(pinned + ":") + "-2.0.0.jar"));
+        }
+    }
+
+    @Test
+    void providedVersionWins() throws Exception {
+        String artifactId = conflictingArtifactIds().getFirst();
+        String pinned = SyntheticRepository.DEFAULT_GROUP_ID + ":" + artifactId;
+        // Publish a classifier artifact next to the first version
+        Path version = repository.directory().resolve(SyntheticRepository.DEFAULT_GROUP_ID.replace('.', '/'))
+            .resolve(artifactId).resolve("1.0.0");
+        for (String suffix : List.of("", ".sha1", ".md5")) {
+            Files.copy(version.resolve(artifactId + "-1.0.0.jar" + suffix), version.resolve(artifactId + "-1.0.0-natives.jar" + suffix));
+        }
+
+        try (ArtifactResolver resolver = new ArtifactResolver(tempDir.resolve("cache"), repositories(), ProgressRenderers.none())) {
+            List<List<Path>> results = resolver.resolveAll(List.of(List.of(pinned + ":2.0.0"), List.of(pinned + ":jar:natives:1.0.0")),
+                List.of(pinned + ":jar:1.0.0"));
+
+            // Another version of a provided artifact is skipped, another classifier is not
+            assertTrue(fileNames(results.get(0)).stream().noneMatch(name -> name.startsWith(artifactId + "-")));
+            assertEquals(artifactId + "-1.0.0-natives.jar", fileNames(results.get(1)).getFirst());
+        }
+    }
+
+    /**
+     * Resolves a manifest in the shared cache with a new resolver, as a restart does.
+     * The previous lock goes through its JSON form, as when read back from the cache.
+     */
+    private DependencyLock resolve(List<String> roots, DependencyLock previous) throws Exception {
+        Path cacheDir = tempDir.resolve("cache");
+        try (ArtifactResolver resolver = new ArtifactResolver(cacheDir, repositories(), ProgressRenderers.none())) {
+            DependencyLock lock = previous == null
+                ? resolver.resolveLock(roots)
+                : resolver.resolveLock(roots, List.of(), DependencyLock.parse(previous.toJson()));
+            assertNotNull(lock.paths(cacheDir));
+            return lock;
+        }
+    }
+
+    /**
+     * Resolves a manifest from scratch, in a cache of its own.
+     */
+    private DependencyLock full(List<String> roots) throws Exception {
+        Path cacheDir = Files.createTempDirectory(tempDir, "full");
+        try (ArtifactResolver resolver = new ArtifactResolver(cacheDir, repositories(), ProgressRenderers.none())) {
+            return resolver.resolveLock(roots);
+        }
+    }
+
+    private List<Repository> repositories() {
+        return List.of(repository.fileRepository());
+    }
+
+    /**
+     * Lists the artifact ids published in a second version.
+     */
+    private List<String> conflictingArtifactIds() throws IOException {
+        Path group = repository.directory().resolve(SyntheticRepository.DEFAULT_GROUP_ID.replace('.', '/'));
+        List<String> artifactIds = new ArrayList<>();
+        try (Stream<Path> artifacts = Files.list(group)) {
+            artifacts.filter(artifact -> Files.isDirectory(artifact.resolve("2.0.0")))
+                .map(artifact -> artifact.getFileName().toString())
+                .sorted()
+                .forEach(artifactIds::add);
+        }
+        assertFalse(artifactIds.isEmpty());
+        return artifactIds;
+    }
+
+    private static List<String> coordinates(DependencyLock lock) {
+        return lock.artifacts().stream().map(DependencyLock.Entry::coordinates).toList();
+    }
+
+    private static List<String> fileNames(List<Path> paths) {
+        return paths.stream().map(path -> path.getFileName().toString()).toList();
+    }
+
+    private static String artifactId(String coordinates) {
+        return coordinates.split(":")[1];
+    }
+}
@@ -35,7 +35,24 @@ dependencies {
     implementation(gradleApi())
 }
 
+testing {
+    suites {
+        // Builds sample projects with TestKit against the plugin under test
+        val functionalTest by registering(JvmTestSuite::class) {
+            useJUnitJupiter()
+            dependencies {
+                implementation(gradleTestKit())
+            }
+        }
+    }
+}
+
+tasks.named("check") {
+    dependsOn(testing.suites.named("functionalTest"))
+}
+
 gradlePlugin {
+    testSourceSets(sourceSets["functionalTest"])
     plugins {
         create("bootstrapLoader") {
             id = "fr.traqueur.bootstrap"
@@ -0,0 +1,127 @@
+package fr.traqueur.bootstrap.gradle
+
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
+import org.gradle.testkit.runner.TaskOutcome
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Builds a sample project with the plugin, against a local Maven repository, to check that the
+ * manifest generation supports the configuration cache and the build cache.
+ */
+class BootstrapLoaderPluginFunctionalTest {
+
+    @TempDir
+    lateinit var testDir: File
+
+    private val projectDir get() = File(testDir, "project")
+
+    @BeforeEach
+    fun setUp() {
+        val repository = File(testDir, "repository")
+        publish(repository, "library", "1.0.0", listOf("helper" to "1.0.0"))
+        publish(repository, "helper", "1.0.0", emptyList())
+
+        projectDir.mkdirs()
+        File(projectDir, "settings.gradle.kts").writeText(
+            """
+            rootProject.name = "sample"
+
+            buildCache {
+                local {
+                    directory = File(rootDir, "../build-cache")
+                }
+            }
+            """.trimIndent()
+        )
+        File(projectDir, "build.gradle.kts").writeText(
+            """
+            plugins {
+                id("fr.traqueur.bootstrap")
+            }
+
+            repositories {
+                maven { url = uri("${repository.toURI()}") }
+            }
+
+            dependencies {
+                "bootstrap"("com.example:library:1.0.0")
+            }
+            """.trimIndent()
+        )
+        File(projectDir, "src/main/java/com/example/app").mkdirs()
+        File(projectDir, "src/main/java/com/example/app/Main.java").writeText(
+            "package com.example.app; public class Main { public static void main(String[] args) {} }"
+        )
+    }
+
+    @Test
+    fun `configuration cache is reused on the second run`() {
+        val first = build("generateDynamicManifest", "--configuration-cache")
+        assertEquals(TaskOutcome.SUCCESS, first.task(":generateDynamicManifest")?.outcome)
+        assertTrue(first.output.contains("Configuration cache entry stored"), first.output)
+
+        val second = build("generateDynamicManifest", "--configuration-cache")
+        assertTrue(second.output.contains("Reusing configuration cache"), second.output)
+        assertEquals(TaskOutcome.UP_TO_DATE, second.task(":generateDynamicManifest")?.outcome)
+    }
+
+    @Test
+    fun `manifest is restored from the build cache after a clean`() {
+        val first = build("generateDynamicManifest", "--build-cache")
+        assertEquals(TaskOutcome.SUCCESS, first.task(":generateDynamicManifest")?.outcome)
+
+        File(projectDir, "build").deleteRecursively()
+
+        val second = build("generateDynamicManifest", "--build-cache")
+        assertEquals(TaskOutcome.FROM_CACHE, second.task(":generateDynamicManifest")?.outcome)
+        val manifest = File(projectDir, "build/generated/resources/bootstrap-loader/META-INF/bootstrap-dependencies.json")
+        assertTrue(manifest.readText().contains("com.example:library:1.0.0"), manifest.readText())
+    }
+
+    /**
+     * Runs the sample project with the plugin under test.
+     */
+    private fun build(vararg arguments: String): BuildResult =
+        GradleRunner.create()
+            .withProjectDir(projectDir)
+            .withPluginClasspath()
+            .withArguments(*arguments, "--stacktrace")
+            .forwardOutput()
+            .build()
+
+    /**
+     * Writes a jar and its POM into a Maven repository.
+     */
+    private fun publish(repository: File, artifactId: String, version: String, dependencies: List<Pair<String, String>>) {
+        val directory = File(repository, "com/example/$artifactId/$version")
+        directory.mkdirs()
+        val dependencyElements = dependencies.joinToString("") { (dependency, dependencyVersion) ->
+            "<dependency><groupId>com.example</groupId><artifactId>$dependency</artifactId>" +
+                "<version>$dependencyVersion</version></dependency>"
+        }
+        File(directory, "$artifactId-$version.pom").writeText(
+            """
+            <project xmlns="http://maven.apache.org/POM/4.0.0">
+              <modelVersion>4.0.0</modelVersion>
+              <groupId>com.example</groupId>
+              <artifactId>$artifactId</artifactId>
+              <version>$version</version>
+              <dependencies>$dependencyElements</dependencies>
+            </project>
+            """.trimIndent()
+        )
+        ZipOutputStream(File(directory, "$artifactId-$version.jar").outputStream()).use { jar ->
+            jar.putNextEntry(ZipEntry("com/example/$artifactId/Marker.class"))
+            jar.write(byteArrayOf(0xCA.toByte(), 0xFE.toByte(), 0xBA.toByte(), 0xBE.toByte()))
+            jar.closeEntry()
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package fr.traqueur.bootstrap.gradle
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Classpath
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import java.io.File
+import java.util.zip.ZipFile
+
+/**
+ * Gradle task that finds the resolved dynamic artifacts the application can never reach.
+ *
+ * Starting from the application classes and the service providers declared in `META-INF/services`,
+ * the task walks class references through the application, its runtime classpath and the dynamic
+ * artifacts. Dynamic artifacts holding classes but no reached class are written to [exclusionsFile] as
+ * "groupId:artifactId", so the manifest can exclude them from runtime resolution. Artifacts holding no
+ * class at all, such as native-only or resource-only jars, are never pruned: they are used through
+ * lookups the analysis cannot follow. Classes of multi-release jars are analyzed in all their versions.
+ *
+ * Classes only used through reflection with computed names are not visible to this analysis:
+ * list their artifacts in [keep] to force them into the manifest.
+ */
+@CacheableTask
+abstract class AnalyzeReachabilityTask : DefaultTask() {
+
+    /**
+     * The application classes and resources used as reachability roots.
+     */
+    @get:Classpath
+    abstract val applicationClasses: ConfigurableFileCollection
+
+    /**
+     * The non-dynamic runtime classpath, walked through but never pruned.
+     */
+    @get:Classpath
+    abstract val runtimeClasspath: ConfigurableFileCollection
+
+    /**
+     * The coordinates of the resolved dynamic artifacts, in the same order as [artifactFiles].
+     */
+    @get:Input
+    abstract val artifactCoordinates: ListProperty<String>
+
+    /**
+     * The resolved dynamic artifact files.
+     */
+    @get:Classpath
+    abstract val artifactFiles: ConfigurableFileCollection
+
+    /**
+     * Artifacts to keep even if unreachable, as "groupId:artifactId".
+     */
+    @get:Input
+    abstract val keep: ListProperty<String>
+
+    /**
+     * The file receiving the pruned artifacts, one "groupId:artifactId" per line.
+     */
+    @get:OutputFile
+    abstract val exclusionsFile: RegularFileProperty
+
+    /**
+     * The human-readable analysis report.
+     */
+    @get:OutputFile
+    abstract val reportFile: RegularFileProperty
+
+    @TaskAction
+    fun analyze() {
+        val application = Source("application", applicationClasses.files.toList())
+        val runtime = runtimeClasspath.files.map { Source(it.name, listOf(it)) }
+        val artifacts = artifactCoordinates.get().zip(artifactFiles.files)
+            .map { (coordinates, file) -> Source(coordinates, listOf(file)) }
+        val sources = listOf(application) + runtime + artifacts
+
+        // Map every class and service declaration to the source holding it, first one wins like on a classpath
+        val owners = mutableMapOf<String, Source>()
+        val services = mutableMapOf<String, MutableList<String>>()
+        for (source in sources) {
+            source.scan { className -> owners.putIfAbsent(className, source) }
+            source.services.forEach { (service, providers) -> services.getOrPut(service) { mutableListOf() } += providers }
+        }
+
+        // Walk class references from the application classes, and from the providers of JDK services
+        // (e.g. JDBC drivers) whose interface is never seen by the analysis
+        val reached = mutableSetOf<String>()
+        val queue = ArrayDeque(application.classes)
+        services.filterKeys { it !in owners }.values.forEach { queue += it }
+        try {
+            while (queue.isNotEmpty()) {
+                val className = queue.removeFirst()
+                if (!reached.add(className)) continue
+                val owner = owners[className] ?: continue
+                owner.reachedClasses++
+                owner.read(className).forEach { bytes ->
+                    ClassReferences.read(bytes).filterTo(queue) { it !in reached && it in owners }
+                }
+                // A reached service interface makes all its providers reachable
+                services[className]?.filterTo(queue) { it !in reached }
+            }
+        } finally {
+            sources.forEach { it.close() }
+        }
+
+        // Collect unreachable dynamic artifacts
+        val forced = keep.get().toSet()
+        val pruned = artifacts.filter {
+            it.classes.isNotEmpty() && it.reachedClasses == 0 && it.groupAndArtifact() !in forced
+        }
+
+        exclusionsFile.get().asFile.writeText(pruned.joinToString("") { "${it.groupAndArtifact()}\n" })
+        writeReport(artifacts, pruned.toSet(), forced)
+
+        val savedBytes = pruned.sumOf { it.size }
+        logger.lifecycle("Reachability: ${pruned.size}/${artifacts.size} dynamic artifacts unreachable (${savedBytes / 1024} KB)")
+    }
+
+    /**
+     * Writes the analysis report, comparing the full and pruned dependency sets.
+     */
+    private fun writeReport(artifacts: List<Source>, pruned: Set<Source>, forced: Set<String>) {
+        val kept = artifacts - pruned
+        val report = buildString {
+            appendLine("Bootstrap reachability report")
+            appendLine()
+            appendLine(String.format("%-10s %10s %16s  %s", "STATUS", "SIZE (KB)", "REACHED/CLASSES", "ARTIFACT"))
+            for (artifact in artifacts.sortedBy { it.name }) {
+                val status = when {
+                    artifact in pruned -> "pruned"
+                    artifact.reachedClasses == 0 && artifact.groupAndArtifact() in forced -> "forced"
+                    artifact.classes.isEmpty() -> "no classes"
+                    else -> "kept"
+                }
+                appendLine(String.format("%-10s %10d %16s  %s",
+                    status, artifact.size / 1024, "${artifact.reachedClasses}/${artifact.classes.size}", artifact.name))
+            }
+            appendLine()
+            appendLine(String.format("%-8s %10s %12s %10s", "", "ARTIFACTS", "SIZE (KB)", "CLASSES"))
+            appendLine(String.format("%-8s %10d %12d %10d", "full",
+                artifacts.size, artifacts.sumOf { it.size } / 1024, artifacts.sumOf { it.classes.size }))
+            appendLine(String.format("%-8s %10d %12d %10d", "pruned",
+                kept.size, kept.sumOf { it.size } / 1024, kept.sumOf { it.classes.size }))
+            appendLine(String.format("%-8s %10d %12d %10d", "saved",
+                pruned.size, pruned.sumOf { it.size } / 1024, pruned.sumOf { it.classes.size }))
+        }
+        reportFile.get().asFile.writeText(report)
+    }
+
+    /**
+     * A set of class roots (directories or jars) analyzed as one unit.
+     */
+    private class Source(val name: String, private val roots: List<File>) : AutoCloseable {
+
+        val classes = linkedSetOf<String>()
+        val services = mutableMapOf<String, List<String>>()
+        var reachedClasses = 0
+        val size: Long get() = roots.filter { it.isFile }.sumOf { it.length() }
+
+        private val jars = mutableMapOf<File, ZipFile>()
+        private val versionedPaths = mutableMapOf<String, MutableList<String>>()
+
+        /**
+         * Lists the classes and service declarations of this source.
+         */
+        fun scan(onClass: (String) -> Unit) {
+            for (root in roots) {
+                when {
+                    root.isDirectory -> root.walkTopDown().filter { it.isFile }.forEach { file ->
+                        val path = file.relativeTo(root).invariantSeparatorsPath
+                        visit(path, onClass) { file.readText() }
+                    }
+                    root.isFile && root.extension == "jar" -> ZipFile(root).use { zip ->
+                        for (entry in zip.entries()) {
+                            if (entry.isDirectory) continue
+                            visit(entry.name, onClass) { zip.getInputStream(entry).use { it.readBytes().decodeToString() } }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reads the bytes of one of the classes of this source, in each version of a multi-release jar.
+         */
+        fun read(className: String): List<ByteArray> =
+            (listOf("$className.class") + versionedPaths[className].orEmpty()).mapNotNull { readEntry(it) }
+
+        /**
+         * Reads the bytes of an entry from the first root holding it.
+         */
+        private fun readEntry(path: String): ByteArray? {
+            for (root in roots) {
+                if (root.isDirectory) {
+                    val file = File(root, path)
+                    if (file.isFile) return file.readBytes()
+                } else if (root.isFile) {
+                    val zip = jars.getOrPut(root) { ZipFile(root) }
+                    val entry = zip.getEntry(path) ?: continue
+                    return zip.getInputStream(entry).use { it.readBytes() }
+                }
+            }
+            return null
+        }
+
+        override fun close() {
+            jars.values.forEach { it.close() }
+            jars.clear()
+        }
+
+        /**
+         * Gets the "groupId:artifactId" of this source, for dynamic artifacts.
+         */
+        fun groupAndArtifact(): String = name.split(':').take(2).joinToString(":")
+
+        private fun visit(path: String, onClass: (String) -> Unit, text: () -> String) {
+            // Multi-release variants define the same class as their unversioned name
+            val versioned = ClassIndex.versionedName(path)
+            val name = versioned ?: path
+            if (name.endsWith(".class") && !name.startsWith("META-INF/") && name != "module-info.class") {
+                val className = name.removeSuffix(".class")
+                if (versioned != null) {
+                    versionedPaths.getOrPut(className) { mutableListOf() } += path
+                }
+                if (classes.add(className)) {
+                    onClass(className)
+                }
+            } else if (path.startsWith("META-INF/services/") && path.count { it == '/' } == 2) {
+                val service = path.removePrefix("META-INF/services/").replace('.', '/')
+                services[service] = text().lineSequence()
+                    .map { it.substringBefore('#').trim() }
+                    .filter { it.isNotEmpty() }
+                    .map { it.replace('.', '/') }
+                    .toList()
+            }
+        }
+    }
+}
@@ -1,16 +1,31 @@
 package fr.traqueur.bootstrap.gradle
 
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.provider.Property
+
 /**
  * Extension for configuring the dynamic loader plugin.
- * Currently empty but reserved for future configuration options.
  *
  * Example usage in build.gradle.kts:
  * ```kotlin
- * dynamicLoader {
- *     // Future configuration options
+ * bootstrapLoader {
+ *     // Leave dynamic artifacts the application never reaches out of the manifest
+ *     pruneUnreachable.set(true)
+ *     // Artifacts only used through reflection
+ *     keep.add("com.fasterxml.jackson.core:jackson-annotations")
  * }
  * ```
  */
-open class BootstrapLoaderExtension {
-    // Reserved for future configuration
-}
\ No newline at end of file
+abstract class BootstrapLoaderExtension {
+
+    /**
+     * Whether transitive dynamic artifacts found unreachable from the application classes
+     * are excluded from runtime resolution. Disabled by default.
+     */
+    abstract val pruneUnreachable: Property<Boolean>
+
+    /**
+     * Artifacts never pruned, as "groupId:artifactId".
+     */
+    abstract val keep: ListProperty<String>
+}
@@ -3,9 +3,15 @@ package fr.traqueur.bootstrap.gradle
 import org.gradle.api.Plugin
 import org.gradle.api.Project
 import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.api.artifacts.result.ResolvedArtifactResult
 import org.gradle.api.plugins.JavaPlugin
+import org.gradle.api.provider.Provider
 import org.gradle.api.tasks.SourceSet
 import org.gradle.api.tasks.SourceSetContainer
+import org.gradle.maven.MavenModule
+import org.gradle.maven.MavenPomArtifact
 
 /**
  * Gradle plugin that enables dynamic dependency loading.
@@ -14,6 +20,11 @@ import org.gradle.api.tasks.SourceSetContainer
  * - Creates a "dynamic" configuration that extends "compileOnly"
  * - Generates META-INF/dynamic-dependencies.json with dependency information
  * - Excludes dynamic dependencies from the runtime classpath
+ * - Registers "bootstrapPrefetch" to pre-warm the runtime artifact cache (e.g. at image build time)
+ * - Registers "analyzeBootstrapReachability" to prune unreachable dynamic artifacts, when enabled in the extension
+ *
+ * Tasks are only wired with lazy providers of plain values (coordinates, URLs, files),
+ * never with live configurations or repositories, to stay compatible with the configuration cache.
  *
  * Usage in build.gradle.kts:
  * ```kotlin
@@ -33,30 +44,94 @@ class BootstrapLoaderPlugin : Plugin<Project> {
         project.plugins.apply(JavaPlugin::class.java)
 
         // Create extension
-        project.extensions.create("bootstrapLoader", BootstrapLoaderExtension::class.java)
+        val extension = project.extensions.create("bootstrapLoader", BootstrapLoaderExtension::class.java)
+        extension.pruneUnreachable.convention(false)
 
         // Create dynamic configuration
         val dynamicConfig = createDynamicConfiguration(project)
 
+        // Lazy views of the configuration
+        val dependencyCoordinates = declaredCoordinates(project, dynamicConfig)
+        val moduleArtifacts = dynamicConfig.incoming.artifacts.resolvedArtifacts.map { results ->
+            results.filter { it.id.componentIdentifier is ModuleComponentIdentifier }
+        }
+
         // Get source sets
         val sourceSets = project.extensions.getByType(SourceSetContainer::class.java)
         val mainSourceSet = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME)
 
+        // Register reachability analysis task
+        val generatedResourcesDir = project.layout.buildDirectory.dir("generated/resources/bootstrap-loader")
+        val analyzeTask = project.tasks.register("analyzeBootstrapReachability", AnalyzeReachabilityTask::class.java) {
+            group = "verification"
+            description = "Finds the dynamic dependencies the application never reaches"
+            applicationClasses.from(mainSourceSet.output.classesDirs)
+            // Exclude the generated manifest directory, produced by a task depending on this one
+            applicationClasses.from(mainSourceSet.resources.sourceDirectories.filter { it != generatedResourcesDir.get().asFile })
+            runtimeClasspath.from(project.configurations.getByName("runtimeClasspath"))
+            artifactCoordinates.set(moduleArtifacts.map { results -> results.map { it.coordinates() } })
+            artifactFiles.from(moduleArtifacts.map { results -> results.map { it.file } })
+            keep.set(extension.keep)
+            exclusionsFile.set(project.layout.buildDirectory.file("bootstrap/reachability/exclusions.txt"))
+            reportFile.set(project.layout.buildDirectory.file("reports/bootstrap/reachability.txt"))
+        }
+        val exclusionsFile = extension.pruneUnreachable.flatMap { enabled ->
+            if (enabled) analyzeTask.flatMap { it.exclusionsFile } else project.objects.fileProperty()
+        }
+
         // Register manifest generation task
         val generateTask = project.tasks.register("generateDynamicManifest", GenerateDynamicManifestTask::class.java)
 
         generateTask.configure {
             group = "build"
             description = "Generates the dynamic dependencies manifest"
-            dynamicConfiguration.set(dynamicConfig)
-            repositories.set(project.repositories.toList())
+            this.dependencyCoordinates.set(dependencyCoordinates)
+            repositories.set(project.provider {
+                project.repositories.filterIsInstance<MavenArtifactRepository>()
+                    .associate { it.name to it.url.toString() }
+            })
+            artifactCoordinates.set(moduleArtifacts.map { results -> results.map { it.coordinates() } })
+            artifactFiles.from(moduleArtifacts.map { results -> results.map { it.file } })
+            this.exclusionsFile.set(exclusionsFile)
 
             // Output directory
-            val outputDir = project.layout.buildDirectory.dir("generated/resources/bootstrap-loader")
-            outputDirectory.set(outputDir)
+            outputDirectory.set(generatedResourcesDir)
 
             // Add generated resources to main source set
-            mainSourceSet.resources.srcDir(outputDir)
+            mainSourceSet.resources.srcDir(generatedResourcesDir)
+        }
+
+        // Register cache pre-warming task
+        val dependencyHandler = project.dependencies
+        project.tasks.register("bootstrapPrefetch", BootstrapPrefetchTask::class.java) {
+            group = "build"
+            description = "Resolves the dynamic dependencies into a pre-warmed runtime cache"
+            this.dependencyCoordinates.set(dependencyCoordinates)
+            artifactCoordinates.set(moduleArtifacts.map { results -> results.map { it.coordinates() } })
+            artifactPaths.set(moduleArtifacts.map { results -> results.map { it.layoutPath() } })
+            artifactFiles.from(moduleArtifacts.map { results -> results.map { it.file } })
+
+            // Evaluated once when the configuration cache entry is stored, never at execution time
+            val poms = project.provider {
+                dependencyHandler.createArtifactResolutionQuery()
+                    .forComponents(dynamicConfig.incoming.artifacts.artifacts
+                        .map { it.id.componentIdentifier }
+                        .filterIsInstance<ModuleComponentIdentifier>())
+                    .withArtifacts(MavenModule::class.java, MavenPomArtifact::class.java)
+                    .execute()
+                    .resolvedComponents
+                    .flatMap { component ->
+                        component.getArtifacts(MavenPomArtifact::class.java)
+                            .filterIsInstance<ResolvedArtifactResult>()
+                            .map { (component.id as ModuleComponentIdentifier).layoutPath(it.file) to it.file }
+                    }
+            }
+            pomPaths.set(poms.map { pairs -> pairs.map { it.first } })
+            pomFiles.from(poms.map { pairs -> pairs.map { it.second } })
+            versionMismatches.set(dynamicConfig.incoming.resolutionResult.rootComponent.map { it.nearestWinsMismatches() })
+            this.exclusionsFile.set(exclusionsFile)
+
+            cacheDirectory.convention(project.layout.buildDirectory.dir("bootstrap-cache"))
         }
 
         // Make processResources depend on generateDynamicManifest
@@ -83,4 +158,15 @@ class BootstrapLoaderPlugin : Plugin<Project> {
 
         return dynamicConfig
     }
-}
\ No newline at end of file
+
+    /**
+     * Lazily collects the declared dependencies of a configuration, in format "groupId:artifactId:version".
+     */
+    private fun declaredCoordinates(project: Project, configuration: Configuration): Provider<List<String>> =
+        project.provider {
+            configuration.allDependencies
+                .filter { it.group != null && it.version != null }
+                .map { "${it.group}:${it.name}:${it.version}" }
+                .sorted()
+        }
+}
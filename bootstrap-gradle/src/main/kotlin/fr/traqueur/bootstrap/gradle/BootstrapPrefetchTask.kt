@@ -0,0 +1,187 @@
+package fr.traqueur.bootstrap.gradle
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.provider.ListProperty
+import org.gradle.api.tasks.Classpath
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import java.io.File
+
+/**
+ * Gradle task that pre-warms the runtime artifact cache.
+ *
+ * The "bootstrap" configuration is resolved by Gradle and copied into the cache directory using the
+ * Maven local repository layout that `ArtifactResolver` expects, together with:
+ * - `bootstrap.lock.json`, the lockfile that lets the runtime skip resolution entirely
+ * - `bootstrap-index.json`, the package index of the resolved jars
+ *
+ * The output only depends on the resolved dependencies: the directory is emptied first, file timestamps are
+ * normalized and generated files are sorted, so an image layer built from it stays identical across
+ * application-only changes.
+ *
+ * Gradle selects the highest requested version of a module, while the runtime selects the nearest one,
+ * like Maven. When both differ for a module (see [nearestWinsMismatches]), the lockfile is not written:
+ * the runtime then resolves the manifest itself, finding most artifacts in the cache, instead of
+ * loading versions it would not have selected. Declaring the wanted version directly in the
+ * "bootstrap" configuration makes both agree.
+ *
+ * Example Dockerfile:
+ * ```dockerfile
+ * COPY build/bootstrap-cache /app/cache
+ * COPY build/libs/app.jar /app/app.jar
+ * ENV BOOTSTRAP_LOADER_CACHE_DIR=/app/cache
+ * ```
+ */
+abstract class BootstrapPrefetchTask : DefaultTask() {
+
+    /**
+     * The declared dynamic dependencies, in format "groupId:artifactId:version".
+     */
+    @get:Input
+    abstract val dependencyCoordinates: ListProperty<String>
+
+    /**
+     * The coordinates of the resolved artifacts, in the same order as [artifactFiles].
+     */
+    @get:Input
+    abstract val artifactCoordinates: ListProperty<String>
+
+    /**
+     * The Maven layout paths of the resolved artifacts, in the same order as [artifactFiles].
+     */
+    @get:Input
+    abstract val artifactPaths: ListProperty<String>
+
+    /**
+     * The resolved artifact files to copy into the cache.
+     */
+    @get:Classpath
+    abstract val artifactFiles: ConfigurableFileCollection
+
+    /**
+     * The Maven layout paths of the resolved POMs, in the same order as [pomFiles].
+     */
+    @get:Input
+    abstract val pomPaths: ListProperty<String>
+
+    /**
+     * The POM files of the resolved artifacts, so the runtime can still resolve from the cache if the manifest changes.
+     */
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.NAME_ONLY)
+    abstract val pomFiles: ConfigurableFileCollection
+
+    /**
+     * The modules whose version selected by Gradle differs from the one the runtime would select.
+     */
+    @get:Input
+    abstract val versionMismatches: ListProperty<String>
+
+    /**
+     * The artifacts excluded from runtime resolution, one "groupId:artifactId" per line.
+     * Produced by [AnalyzeReachabilityTask] when pruning is enabled.
+     */
+    @get:Optional
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val exclusionsFile: RegularFileProperty
+
+    /**
+     * The cache directory to populate, as later passed to `bootstraploader.cache.dir`.
+     */
+    @get:OutputDirectory
+    abstract val cacheDirectory: DirectoryProperty
+
+    @TaskAction
+    fun prefetch() {
+        val cacheDir = cacheDirectory.get().asFile
+        // Artifacts of a previous dependency set must not stay in the cache
+        cacheDir.deleteRecursively()
+        cacheDir.mkdirs()
+
+        // Read like the manifest generation does, so the lock records the same exclusions as the manifest
+        val exclusions = exclusionsFile.orNull?.asFile?.readLines().orEmpty().filter { it.isNotBlank() }
+        val excludedKeys = exclusions.toSet()
+
+        // Copy jars into the Maven layout, skipping pruned artifacts like the runtime resolver does
+        val lockEntries = mutableListOf<Pair<String, String>>()
+        val indexEntries = mutableListOf<ClassIndex.Entry>()
+        val artifacts = artifactCoordinates.get().zip(artifactPaths.get()).zip(artifactFiles.files)
+        for ((coordinatesAndPath, file) in artifacts) {
+            val (coordinates, relativePath) = coordinatesAndPath
+            if (coordinates.split(':').take(2).joinToString(":") in excludedKeys) continue
+            copy(file, File(cacheDir, relativePath))
+
+            lockEntries += coordinates to relativePath
+            if (file.extension == "jar") {
+                indexEntries += ClassIndex.scan(coordinates, file)
+            }
+        }
+
+        // Copy POMs
+        pomPaths.get().zip(pomFiles.files).forEach { (relativePath, file) ->
+            copy(file, File(cacheDir, relativePath))
+        }
+
+        // Write lockfile, using the same format as fr.traqueur.bootstrap.config.DependencyLock
+        val lock = buildString {
+            appendLine("{")
+            appendLine("""  "dependencies": [""")
+            appendLine(dependencyCoordinates.get().joinToString(",\n") { """    "$it"""" })
+            appendLine("  ],")
+            appendLine("""  "exclusions": [""")
+            appendLine(exclusions.joinToString(",\n") { """    "$it"""" })
+            appendLine("  ],")
+            appendLine("""  "artifacts": [""")
+            appendLine(lockEntries.joinToString(",\n") { (coordinates, path) ->
+                """    { "coordinates": "$coordinates", "path": "$path" }"""
+            })
+            appendLine("  ]")
+            appendLine("}")
+        }
+        val mismatches = versionMismatches.get()
+        if (mismatches.isEmpty()) {
+            write(File(cacheDir, LOCK_FILE_NAME), lock)
+        } else {
+            logger.warn("Not writing $LOCK_FILE_NAME: the runtime resolves these versions differently than Gradle, " +
+                "declare the wanted versions in the 'bootstrap' configuration to lock them:\n" +
+                mismatches.joinToString("\n") { "  $it" })
+        }
+        write(File(cacheDir, ClassIndex.FILE_NAME), ClassIndex(indexEntries).toJson())
+
+        logger.lifecycle("Prefetched ${lockEntries.size} artifacts into ${cacheDir.absolutePath}")
+    }
+
+    /**
+     * Copies a file with a normalized timestamp.
+     */
+    private fun copy(source: File, target: File) {
+        target.parentFile.mkdirs()
+        source.copyTo(target, overwrite = true)
+        target.setLastModified(REPRODUCIBLE_TIMESTAMP)
+    }
+
+    /**
+     * Writes a generated file with a normalized timestamp.
+     */
+    private fun write(target: File, content: String) {
+        target.writeText(content)
+        target.setLastModified(REPRODUCIBLE_TIMESTAMP)
+    }
+
+    private companion object {
+        const val LOCK_FILE_NAME = "bootstrap.lock.json"
+
+        // Same constant as Gradle's reproducible archives: 1980-02-01T00:00:00 UTC
+        const val REPRODUCIBLE_TIMESTAMP = 318211200000L
+    }
+}
@@ -0,0 +1,118 @@
+package fr.traqueur.bootstrap.gradle
+
+import java.io.File
+import java.util.zip.ZipFile
+
+/**
+ * Package index of a set of resolved artifacts.
+ * Lists, for each artifact, the number of classes it holds, the packages it contributes and
+ * its other resource names, so the runtime can route lookups without opening every jar first.
+ * Resources are omitted for an artifact holding a name the runtime JSON parser cannot read back.
+ *
+ * Generated JSON format:
+ * ```json
+ * {
+ *   "artifacts": [
+ *     { "coordinates": "net.dv8tion:JDA:jar:6.1.2", "classes": 1234, "packages": ["net.dv8tion.jda.api"],
+ *       "resources": ["META-INF/MANIFEST.MF"] }
+ *   ]
+ * }
+ * ```
+ */
+internal class ClassIndex(private val entries: List<Entry>) {
+
+    /**
+     * Index entry of a single artifact.
+     */
+    internal data class Entry(
+        val coordinates: String,
+        val classes: Int,
+        val packages: List<String>,
+        val resources: List<String>?,
+    )
+
+    /**
+     * Serializes the index to JSON, with entries sorted by coordinates for reproducible output.
+     */
+    fun toJson(): String = buildString {
+        appendLine("{")
+        appendLine("""  "artifacts": [""")
+        appendLine(entries.sortedBy { it.coordinates }.joinToString(",\n") { entry ->
+            val packages = entry.packages.joinToString(", ") { """"$it"""" }
+            val resources = entry.resources?.let { names ->
+                """, "resources": [${names.joinToString(", ") { """"$it"""" }}]"""
+            } ?: ""
+            """    { "coordinates": "${entry.coordinates}", "classes": ${entry.classes}, "packages": [$packages]$resources }"""
+        })
+        appendLine("  ]")
+        appendLine("}")
+    }
+
+    companion object {
+
+        /**
+         * The name of the index file.
+         */
+        const val FILE_NAME = "bootstrap-index.json"
+
+        /**
+         * Characters that would break the runtime regex-based JSON parser.
+         */
+        private const val UNINDEXABLE_CHARACTERS = "\"\\[]{}"
+
+        private const val VERSIONS_PREFIX = "META-INF/versions/"
+
+        /**
+         * Scans a jar and builds its index entry.
+         * Only the central directory is read, entries are never inflated.
+         */
+        fun scan(coordinates: String, jar: File): Entry {
+            var classes = 0
+            val packages = sortedSetOf<String>()
+            val resources = sortedSetOf<String>()
+            ZipFile(jar).use { zip ->
+                for (entry in zip.entries()) {
+                    if (entry.isDirectory) continue
+                    var name = entry.name
+                    val versioned = versionedName(name)
+                    if (versioned != null) {
+                        // Multi-release variants are served under their unversioned name,
+                        // which may exist in no other version: route it like an unversioned entry
+                        resources.add(name)
+                        name = versioned
+                    }
+                    // Module-info variants are indexed as resources
+                    if (!name.endsWith(".class") || name.startsWith("META-INF/") || name == "module-info.class") {
+                        resources.add(name)
+                        continue
+                    }
+                    if (versioned == null) {
+                        classes++
+                    }
+                    val slash = name.lastIndexOf('/')
+                    if (slash > 0) {
+                        packages.add(name.substring(0, slash).replace('/', '.'))
+                    } else {
+                        // Default package classes are routed by name
+                        resources.add(name)
+                    }
+                }
+            }
+            val indexable = resources.none { name -> name.any { it in UNINDEXABLE_CHARACTERS } }
+            return Entry(coordinates, classes, packages.toList(), if (indexable) resources.toList() else null)
+        }
+
+        /**
+         * Strips the "META-INF/versions/N/" prefix of a multi-release jar entry.
+         *
+         * @return the unversioned name, or null if the entry is not versioned
+         */
+        internal fun versionedName(name: String): String? {
+            if (!name.startsWith(VERSIONS_PREFIX)) return null
+            val slash = name.indexOf('/', VERSIONS_PREFIX.length)
+            if (slash <= VERSIONS_PREFIX.length || slash == name.length - 1) return null
+            if (!name.substring(VERSIONS_PREFIX.length, slash).all { it.isDigit() }) return null
+            return name.substring(slash + 1)
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package fr.traqueur.bootstrap.gradle
+
+import java.nio.ByteBuffer
+
+/**
+ * Minimal class file reader extracting the classes a class refers to.
+ * Only the constant pool is read, which avoids a bytecode library dependency in the plugin.
+ *
+ * References are collected from class constants, from type descriptors and generic signatures
+ * (fields, methods, annotations), and from string constants that look like class names,
+ * which covers most `Class.forName` literals. The result is a superset of the real references,
+ * which is what a conservative reachability analysis needs.
+ */
+internal object ClassReferences {
+
+    private val DESCRIPTOR_PATTERN = Regex("""L([\w$]+(?:/[\w$]+)+)[;<]""")
+    private val BINARY_NAME_PATTERN = Regex("""[a-z_][\w$]*(?:\.[\w$]+)+""")
+
+    /**
+     * Reads the internal names (e.g. `com/example/Foo`) of the classes referenced by a class file.
+     */
+    fun read(bytes: ByteArray): Set<String> {
+        val buffer = ByteBuffer.wrap(bytes)
+        if (buffer.remaining() < 10 || buffer.int != 0xCAFEBABE.toInt()) return emptySet()
+        buffer.position(8)
+
+        val count = buffer.short.toInt() and 0xFFFF
+        val utf8 = arrayOfNulls<String>(count)
+        val classIndexes = mutableListOf<Int>()
+        var i = 1
+        while (i < count) {
+            when (val tag = buffer.get().toInt()) {
+                1 -> {
+                    val length = buffer.short.toInt() and 0xFFFF
+                    utf8[i] = String(bytes, buffer.position(), length, Charsets.UTF_8)
+                    buffer.position(buffer.position() + length)
+                }
+                7 -> classIndexes += buffer.short.toInt() and 0xFFFF
+                8, 16, 19, 20 -> buffer.position(buffer.position() + 2)
+                15 -> buffer.position(buffer.position() + 3)
+                3, 4, 9, 10, 11, 12, 17, 18 -> buffer.position(buffer.position() + 4)
+                5, 6 -> {
+                    // Long and double constants take two slots
+                    buffer.position(buffer.position() + 8)
+                    i++
+                }
+                else -> throw IllegalArgumentException("Unknown constant pool tag: $tag")
+            }
+            i++
+        }
+
+        val references = mutableSetOf<String>()
+        for (index in classIndexes) {
+            val name = utf8[index] ?: continue
+            if (!name.startsWith("[")) references += name
+        }
+        for (value in utf8) {
+            if (value == null) continue
+            DESCRIPTOR_PATTERN.findAll(value).forEach { references += it.groupValues[1] }
+            if (BINARY_NAME_PATTERN.matches(value)) references += value.replace('.', '/')
+        }
+        return references
+    }
+}
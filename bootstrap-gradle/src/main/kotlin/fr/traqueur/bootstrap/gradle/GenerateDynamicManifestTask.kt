@@ -1,16 +1,19 @@
 package fr.traqueur.bootstrap.gradle
 
 import org.gradle.api.DefaultTask
-import org.gradle.api.artifacts.Configuration
-import org.gradle.api.artifacts.repositories.ArtifactRepository
-import org.gradle.api.artifacts.repositories.MavenArtifactRepository
+import org.gradle.api.file.ConfigurableFileCollection
 import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.RegularFileProperty
 import org.gradle.api.provider.ListProperty
-import org.gradle.api.provider.Property
-import org.gradle.api.provider.Provider
+import org.gradle.api.provider.MapProperty
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Classpath
 import org.gradle.api.tasks.Input
-import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
 import java.io.File
 
@@ -18,69 +21,69 @@ import java.io.File
  * Gradle task that generates the dynamic dependencies manifest JSON file.
  * This file is placed in META-INF/dynamic-dependencies.json and contains
  * the list of dependencies to be loaded at runtime.
+ *
+ * It also scans the resolved jars and writes META-INF/bootstrap-index.json, the package index
+ * the runtime uses to route class lookups without opening every jar first.
+ *
+ * All inputs are plain values or files wired lazily by [BootstrapLoaderPlugin], so the task
+ * is compatible with the configuration cache and its outputs can be reused from the build cache.
  */
+@CacheableTask
 abstract class GenerateDynamicManifestTask : DefaultTask() {
 
     /**
-     * The dynamic configuration containing dependencies to include in the manifest.
+     * The declared dynamic dependencies, in format "groupId:artifactId:version".
      */
-    @get:Internal
-    abstract val dynamicConfiguration: Property<Configuration>
+    @get:Input
+    abstract val dependencyCoordinates: ListProperty<String>
 
     /**
-     * The project repositories to include in the manifest.
+     * The Maven repositories to include in the manifest, as repository name to URL.
      */
-    @get:Internal
-    abstract val repositories: ListProperty<ArtifactRepository>
+    @get:Input
+    abstract val repositories: MapProperty<String, String>
 
     /**
-     * The output directory where the manifest will be generated.
+     * The coordinates of the resolved artifacts, in the same order as [artifactFiles].
      */
-    @get:OutputDirectory
-    abstract val outputDirectory: DirectoryProperty
+    @get:Input
+    abstract val artifactCoordinates: ListProperty<String>
 
     /**
-     * Input property for up-to-date checking based on dependencies.
+     * The resolved artifact files to index.
      */
-    @get:Input
-    val dependencyCoordinates: Provider<List<String>>
-        get() = dynamicConfiguration.map { config ->
-            config.allDependencies
-                .filter { it.group != null && it.version != null }
-                .map { "${it.group}:${it.name}:${it.version}" }
-                .sorted()
-        }
+    @get:Classpath
+    abstract val artifactFiles: ConfigurableFileCollection
 
     /**
-     * Input property for up-to-date checking based on repositories.
+     * The artifacts to exclude from runtime resolution, one "groupId:artifactId" per line.
+     * Produced by [AnalyzeReachabilityTask] when pruning is enabled.
      */
-    @get:Input
-    val repositoryUrls: Provider<List<String>>
-        get() = repositories.map { repos ->
-            repos.filterIsInstance<MavenArtifactRepository>()
-                .mapNotNull { it.url.toString() }
-                .sorted()
-        }
+    @get:Optional
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val exclusionsFile: RegularFileProperty
+
+    /**
+     * The output directory where the manifest will be generated.
+     */
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
 
     @TaskAction
     fun generate() {
-        val config = dynamicConfiguration.get()
-        val repos = repositories.get()
-
         // Collect dependencies
-        val dependencies = config.allDependencies
-            .filter { it.group != null && it.version != null }
-            .map { """"${it.group}:${it.name}:${it.version}"""" }
-            .toList()
+        val dependencies = dependencyCoordinates.get()
+            .map { """"$it"""" }
 
         // Collect repositories
-        val repositoriesList = repos.filterIsInstance<MavenArtifactRepository>()
-            .map { repo ->
-                val id = repo.name
-                val url = repo.url.toString()
-                """    { "id": "$id", "url": "$url" }"""
-            }
-            .toList()
+        val repositoriesList = repositories.get()
+            .map { (id, url) -> """    { "id": "$id", "url": "$url" }""" }
+
+        // Collect exclusions
+        val exclusions = exclusionsFile.orNull?.asFile?.readLines().orEmpty()
+            .filter { it.isNotBlank() }
+            .map { """"$it"""" }
 
         // Generate JSON
         val json = buildString {
@@ -90,6 +93,9 @@ abstract class GenerateDynamicManifestTask : DefaultTask() {
             appendLine("  ],")
             appendLine("""  "repositories": [""")
             appendLine(repositoriesList.joinToString(",\n"))
+            appendLine("  ],")
+            appendLine("""  "exclusions": [""")
+            appendLine(exclusions.joinToString(",\n") { "    $it" })
             appendLine("  ]")
             appendLine("}")
         }
@@ -102,7 +108,18 @@ abstract class GenerateDynamicManifestTask : DefaultTask() {
         val manifestFile = File(metaInfDir, "bootstrap-dependencies.json")
         manifestFile.writeText(json)
 
+        // Index the packages of the resolved jars
+        val indexEntries = artifactCoordinates.get().zip(artifactFiles.files)
+            .filter { (_, file) -> file.extension == "jar" }
+            .map { (coordinates, file) -> ClassIndex.scan(coordinates, file) }
+        val indexFile = File(metaInfDir, ClassIndex.FILE_NAME)
+        indexFile.writeText(ClassIndex(indexEntries).toJson())
+
         logger.lifecycle("Generated dynamic dependencies manifest: ${manifestFile.absolutePath}")
         logger.lifecycle("Dynamic dependencies: ${dependencies.size}")
+        if (exclusions.isNotEmpty()) {
+            logger.lifecycle("Pruned dependencies: ${exclusions.size}")
+        }
+        logger.lifecycle("Indexed ${indexEntries.sumOf { it.classes }} classes across ${indexEntries.size} artifacts")
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package fr.traqueur.bootstrap.gradle
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.result.ResolvedArtifactResult
+import java.io.File
+
+/**
+ * Computes the Maven local repository path of an artifact file, as used by the runtime cache.
+ */
+internal fun ModuleComponentIdentifier.layoutPath(file: File): String =
+    "${group.replace('.', '/')}/$module/$version/${file.name}"
+
+/**
+ * Computes the coordinates of an artifact file, in format "groupId:artifactId:extension[:classifier]:version".
+ * This matches the coordinates the runtime resolver records in its lockfile.
+ */
+internal fun ModuleComponentIdentifier.coordinates(file: File): String {
+    val classifier = file.nameWithoutExtension
+        .removePrefix("$module-$version")
+        .removePrefix("-")
+    return if (classifier.isEmpty()) {
+        "$group:$module:${file.extension}:$version"
+    } else {
+        "$group:$module:${file.extension}:$classifier:$version"
+    }
+}
+
+/**
+ * Computes the Maven local repository path of a resolved module artifact.
+ */
+internal fun ResolvedArtifactResult.layoutPath(): String =
+    (id.componentIdentifier as ModuleComponentIdentifier).layoutPath(file)
+
+/**
+ * Computes the coordinates of a resolved module artifact.
+ */
+internal fun ResolvedArtifactResult.coordinates(): String =
+    (id.componentIdentifier as ModuleComponentIdentifier).coordinates(file)
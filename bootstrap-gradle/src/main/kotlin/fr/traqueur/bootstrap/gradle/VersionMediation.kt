@@ -0,0 +1,57 @@
+package fr.traqueur.bootstrap.gradle
+
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.component.ModuleComponentSelector
+import org.gradle.api.artifacts.result.ResolvedComponentResult
+import org.gradle.api.artifacts.result.ResolvedDependencyResult
+
+/**
+ * Finds the modules whose version selected by Gradle differs from the one Maven would select.
+ *
+ * Gradle selects the highest requested version of a module, while the runtime resolver mediates
+ * versions like Maven: the version requested nearest to the roots wins, the first declared one at
+ * equal depth. The graph is walked breadth-first from the roots, in the manifest order, and the
+ * first version requested for each module is compared with the version Gradle selected.
+ *
+ * The walk follows the dependencies of the versions Gradle selected, so a module only requested by
+ * a version Maven would not select is not reported.
+ *
+ * @return one "groupId:artifactId: nearest X, selected Y" line per module, in walk order
+ */
+internal fun ResolvedComponentResult.nearestWinsMismatches(): List<String> {
+    val nearest = LinkedHashMap<String, String>()
+    val selected = HashMap<String, String>()
+    val visited = HashSet<ComponentIdentifier>().apply { add(id) }
+    val queue = ArrayDeque(listOf(this))
+
+    while (queue.isNotEmpty()) {
+        val component = queue.removeFirst()
+        var dependencies = component.dependencies
+            .filterIsInstance<ResolvedDependencyResult>()
+            .filter { !it.isConstraint && it.requested is ModuleComponentSelector }
+        if (component === this) {
+            // The manifest lists the roots sorted by coordinates
+            dependencies = dependencies.sortedBy { it.requested.displayName }
+        }
+        for (dependency in dependencies) {
+            val requested = dependency.requested as ModuleComponentSelector
+            val key = "${requested.group}:${requested.module}"
+            if (requested.version.isNotEmpty()) {
+                nearest.putIfAbsent(key, requested.version)
+            }
+            val target = dependency.selected
+            (target.id as? ModuleComponentIdentifier)?.let { selected[key] = it.version }
+            if (visited.add(target.id)) {
+                queue += target
+            }
+        }
+    }
+
+    return nearest.mapNotNull { (key, version) ->
+        val winner = selected[key]
+        // Version ranges are mediated differently by both tools, only exact versions are compared
+        if (winner == null || winner == version || version.first() in "[(") null
+        else "$key: nearest $version, selected $winner"
+    }
+}
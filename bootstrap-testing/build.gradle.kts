@@ -0,0 +1,22 @@
+plugins {
+    java
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
+
+dependencies {
+    // Test fixtures drive the real resolver, no other dependency: the HTTP server is the JDK one
+    implementation(project(":bootstrap-core"))
+}
+
+tasks.register<JavaExec>("resolutionBenchmark") {
+    group = "verification"
+    description = "Resolves a synthetic repository over file:// and over a throttled local HTTP server"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("fr.traqueur.bootstrap.testing.ResolutionBenchmark")
+    args = (findProperty("benchmarkArgs") as String?)?.split(" ") ?: emptyList()
+}
@@ -0,0 +1,351 @@
+package fr.traqueur.bootstrap.testing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.traqueur.bootstrap.config.DependencyManifest.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded HTTP server serving a directory as a Maven repository, with injected latency,
+ * bandwidth limit and failures, to measure resolution against a slow or unreliable remote.
+ *
+ * <p>The server listens on the loopback address, on a free port. Each request waits for the
+ * configured latency before any response. Failures are drawn per request from a seeded random,
+ * and answer either with the configured status or by closing the connection halfway through the
+ * body. The bandwidth limit applies to each response separately, as connections to a real remote
+ * are throttled separately.</p>
+ *
+ * <p>The JDK server only sets TCP_NODELAY when the {@code sun.net.httpserver.nodelay} system
+ * property is true. Without it, small responses wait for delayed ACKs and each request costs tens of
+ * milliseconds, which hides the configured latency. The property is JVM-wide and read once, when
+ * the first JDK server is created, so this class leaves it to the caller: pass
+ * {@code -Dsun.net.httpserver.nodelay=true} to the JVM, as the benchmark and the tests do.</p>
+ *
+ * <p>Example:</p>
+ * <pre>{@code
+ * try (RepositoryServer server = RepositoryServer.builder(repository.directory())
+ *         .latency(Duration.ofMillis(50))
+ *         .bandwidth(1024 * 1024)
+ *         .start()) {
+ *     new ArtifactResolver(cacheDir, List.of(server.repository())).resolveLock(repository.roots());
+ * }
+ * }</pre>
+ */
+public final class RepositoryServer implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path root;
+    private final Duration latency;
+    private final long bandwidth;
+    private final double failureRate;
+    private final int failureStatus;
+    private final boolean truncate;
+    private final Random random;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * Starts a server from its builder settings.
+     *
+     * @param builder the builder
+     * @throws IOException if the server cannot be bound
+     */
+    private RepositoryServer(Builder builder) throws IOException {
+        this.root = builder.root.toAbsolutePath().normalize();
+        this.latency = builder.latency;
+        this.bandwidth = builder.bandwidth;
+        this.failureRate = builder.failureRate;
+        this.failureStatus = builder.failureStatus;
+        this.truncate = builder.truncate;
+        this.random = new Random(builder.seed);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Creates a builder serving a directory, with no latency, no bandwidth limit and no failure.
+     *
+     * @param root the repository root directory
+     * @return a new builder
+     */
+    public static Builder builder(Path root) {
+        return new Builder(root);
+    }
+
+    /**
+     * Gets the base URI of the served repository.
+     *
+     * @return the repository URI, ending with a slash
+     */
+    public URI uri() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/");
+    }
+
+    /**
+     * Gets the served repository as a manifest repository.
+     *
+     * @return the repository
+     */
+    public Repository repository() {
+        return new Repository("synthetic-http", uri().toString());
+    }
+
+    /**
+     * Gets the number of requests received so far.
+     *
+     * @return the number of requests
+     */
+    public int requests() {
+        return requests.get();
+    }
+
+    /**
+     * Gets the number of requests answered with an injected failure so far.
+     *
+     * @return the number of failures
+     */
+    public int failures() {
+        return failures.get();
+    }
+
+    /**
+     * Gets the number of body bytes sent so far.
+     *
+     * @return the number of bytes
+     */
+    public long bytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Answers a request: waits for the latency, then fails or sends the file.
+     *
+     * @param exchange the HTTP exchange
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            sleep(latency.toNanos());
+
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Path file = root.resolve(exchange.getRequestURI().getPath().substring(1)).normalize();
+            if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            boolean fail;
+            synchronized (random) {
+                fail = random.nextDouble() < failureRate;
+            }
+            if (fail) {
+                failures.incrementAndGet();
+                if (!truncate) {
+                    exchange.sendResponseHeaders(failureStatus, -1);
+                    return;
+                }
+            }
+
+            long size = Files.size(file);
+            if (method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, size);
+            send(file, fail ? size / 2 : size, exchange.getResponseBody());
+        }
+    }
+
+    /**
+     * Sends the start of a file, paced to the bandwidth limit.
+     * Sending less than the announced length makes the client see a truncated body.
+     *
+     * @param file   the file to send
+     * @param length the number of bytes to send
+     * @param out    the response body
+     * @throws IOException if the body cannot be written
+     */
+    private void send(Path file, long length, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long sent = 0;
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            while (sent < length) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, length - sent));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                sent += read;
+                bytesSent.addAndGet(read);
+                if (bandwidth > 0) {
+                    // Wait until the bytes sent so far fit in the elapsed time
+                    sleep(sent * 1_000_000_000L / bandwidth - (System.nanoTime() - start));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sleeps without reporting interruption, the server being closed on interruption anyway.
+     *
+     * @param nanos the time to sleep in nanoseconds, ignored if not positive
+     */
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the server immediately, aborting the responses in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Builder of repository servers.
+     */
+    public static final class Builder {
+
+        private final Path root;
+        private Duration latency = Duration.ZERO;
+        private long bandwidth = 0;
+        private double failureRate = 0;
+        private int failureStatus = 503;
+        private boolean truncate = false;
+        private long seed = 42;
+
+        /**
+         * Creates a builder serving a directory.
+         *
+         * @param root the repository root directory
+         */
+        private Builder(Path root) {
+            this.root = root;
+        }
+
+        /**
+         * Sets the delay before each response.
+         *
+         * @param latency the delay
+         * @return this builder
+         */
+        public Builder latency(Duration latency) {
+            if (latency.isNegative()) {
+                throw new IllegalArgumentException("latency must not be negative: " + latency);
+            }
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Limits the throughput of each response.
+         *
+         * @param bytesPerSecond the throughput in bytes per second, or 0 for no limit
+         * @return this builder
+         */
+        public Builder bandwidth(long bytesPerSecond) {
+            if (bytesPerSecond < 0) {
+                throw new IllegalArgumentException("bandwidth must not be negative: " + bytesPerSecond);
+            }
+            this.bandwidth = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets the share of requests of existing files answered with a failure.
+         *
+         * @param failureRate the failure probability, between 0 and 1
+         * @return this builder
+         */
+        public Builder failureRate(double failureRate) {
+            if (failureRate < 0 || failureRate > 1) {
+                throw new IllegalArgumentException("failureRate must be between 0 and 1: " + failureRate);
+            }
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        /**
+         * Sets the HTTP status of injected failures. Defaults to 503.
+         *
+         * @param failureStatus the HTTP status
+         * @return this builder
+         */
+        public Builder failureStatus(int failureStatus) {
+            this.failureStatus = failureStatus;
+            return this;
+        }
+
+        /**
+         * Makes injected failures send half of the body and close the connection, instead of
+         * answering with the failure status.
+         *
+         * @param truncate whether failures truncate the body
+         * @return this builder
+         */
+        public Builder truncate(boolean truncate) {
+            this.truncate = truncate;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the failure draws.
+         *
+         * @param seed the random seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Starts the server.
+         *
+         * @return the started server
+         * @throws IOException if the server cannot be bound
+         */
+        public RepositoryServer start() throws IOException {
+            return new RepositoryServer(this);
+        }
+    }
+}
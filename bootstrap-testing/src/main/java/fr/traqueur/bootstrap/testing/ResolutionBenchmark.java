@@ -0,0 +1,105 @@
+package fr.traqueur.bootstrap.testing;
+
+import fr.traqueur.bootstrap.config.DependencyLock;
+import fr.traqueur.bootstrap.config.DependencyManifest.Repository;
+import fr.traqueur.bootstrap.resolver.ArtifactResolver;
+import fr.traqueur.bootstrap.resolver.progress.ProgressRenderers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures dependency resolution against a synthetic repository, without the network.
+ * The same repository is resolved into an empty cache from {@code file://}, from the local HTTP
+ * server without throttling, and from the local HTTP server with the given latency, bandwidth
+ * and failure rate.
+ *
+ * <pre>{@code
+ * ./gradlew :bootstrap-testing:resolutionBenchmark -PbenchmarkArgs="4 3 64 4 20 2048 0.05"
+ * }</pre>
+ */
+public class ResolutionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // The benchmark owns its JVM: enable TCP_NODELAY before the first RepositoryServer is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int fanOut = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int jarSize = args.length > 2 ? Integer.parseInt(args[2]) * 1024 : 64 * 1024;
+        int conflicts = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        Duration latency = Duration.ofMillis(args.length > 4 ? Long.parseLong(args[4]) : 20);
+        long bandwidth = (args.length > 5 ? Long.parseLong(args[5]) : 2048) * 1024;
+        double failureRate = args.length > 6 ? Double.parseDouble(args[6]) : 0;
+
+        Path workDir = Files.createTempDirectory("bootstrap-resolution-benchmark");
+        try {
+            SyntheticRepository repository = SyntheticRepository.builder()
+                .depth(depth)
+                .fanOut(fanOut)
+                .jarSize(jarSize)
+                .conflicts(conflicts)
+                .build(workDir.resolve("repository"));
+            System.out.println("[Benchmark] " + repository.artifactCount() + " artifact versions, "
+                + (repository.totalBytes() / 1024) + " KB, " + repository.roots().size() + " roots");
+
+            run("file", repository.fileRepository(), repository, workDir.resolve("cache-file"));
+            try (RepositoryServer server = RepositoryServer.builder(repository.directory()).start()) {
+                run("http", server.repository(), repository, workDir.resolve("cache-http"));
+                System.out.println("[Benchmark] " + " ".repeat(9) + server.requests() + " requests");
+            }
+            try (RepositoryServer server = RepositoryServer.builder(repository.directory())
+                    .latency(latency)
+                    .bandwidth(bandwidth)
+                    .failureRate(failureRate)
+                    .start()) {
+                run("throttled", server.repository(), repository, workDir.resolve("cache-throttled"));
+                System.out.println("[Benchmark] " + " ".repeat(9) + server.requests() + " requests, "
+                    + server.failures() + " injected failures (" + latency.toMillis() + " ms latency, "
+                    + (bandwidth / 1024) + " KB/s)");
+            }
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    /**
+     * Resolves the repository roots into an empty cache and reports the time taken.
+     *
+     * @param mode       the mode name
+     * @param remote     the repository to resolve from
+     * @param repository the synthetic repository
+     * @param cacheDir   the empty cache directory
+     */
+    private static void run(String mode, Repository remote, SyntheticRepository repository, Path cacheDir) {
+        long start = System.nanoTime();
+        try (ArtifactResolver resolver = new ArtifactResolver(cacheDir, List.of(remote), ProgressRenderers.none())) {
+            DependencyLock lock = resolver.resolveLock(repository.roots());
+            System.out.printf("[Benchmark] %-9s %8.2f ms, %d artifacts resolved%n",
+                mode, (System.nanoTime() - start) / 1e6, lock.artifacts().size());
+        } catch (Exception e) {
+            System.out.printf("[Benchmark] %-9s failed after %.2f ms: %s%n",
+                mode, (System.nanoTime() - start) / 1e6, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes a directory and its content.
+     *
+     * @param directory the directory to delete
+     * @throws IOException if the directory cannot be deleted
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package fr.traqueur.bootstrap.testing;
+
+import fr.traqueur.bootstrap.config.DependencyManifest.Repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * A synthetic Maven repository written to disk, for measuring resolution without the network.
+ *
+ * <p>The dependency graph is layered: the roots are at level 0 and each artifact above the last
+ * level depends on {@code fanOut} artifacts of the next level. Levels are capped in width, so deep
+ * graphs share artifacts between subtrees as real ones do. Conflicting artifacts are published in
+ * two versions and half of their dependents ask for the newer one.</p>
+ *
+ * <p>Each jar holds one empty class and an incompressible resource padding it to the configured
+ * size. The repository is generated from a seed, so the same builder always writes the same
+ * repository.</p>
+ *
+ * <p>Example:</p>
+ * <pre>{@code
+ * SyntheticRepository repository = SyntheticRepository.builder()
+ *     .depth(4)
+ *     .fanOut(3)
+ *     .conflicts(5)
+ *     .build(Files.createTempDirectory("synthetic-repo"));
+ * DependencyLock lock = new ArtifactResolver(cacheDir, List.of(repository.fileRepository()))
+ *     .resolveLock(repository.roots());
+ * }</pre>
+ */
+public final class SyntheticRepository {
+
+    /**
+     * Default group of the generated artifacts.
+     */
+    public static final String DEFAULT_GROUP_ID = "fr.traqueur.synthetic";
+
+    private static final String BASE_VERSION = "1.0.0";
+    private static final String CONFLICT_VERSION = "2.0.0";
+
+    private final Path directory;
+    private final List<String> roots;
+    private final int artifactCount;
+    private final long totalBytes;
+
+    /**
+     * Creates a synthetic repository description.
+     *
+     * @param directory     the repository root directory
+     * @param roots         the coordinates of the root artifacts
+     * @param artifactCount the number of published artifact versions
+     * @param totalBytes    the size of the published jars and POMs
+     */
+    private SyntheticRepository(Path directory, List<String> roots, int artifactCount, long totalBytes) {
+        this.directory = directory;
+        this.roots = roots;
+        this.artifactCount = artifactCount;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Creates a builder with the default graph: 2 roots, depth 3, fan-out 3, 16 KB jars and no conflict.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the repository root directory, in Maven 2 layout.
+     *
+     * @return the repository directory
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Gets the {@code file://} URI of the repository.
+     *
+     * @return the repository URI
+     */
+    public URI uri() {
+        return directory.toUri();
+    }
+
+    /**
+     * Gets the repository as a manifest repository served from {@code file://}.
+     *
+     * @return the repository
+     */
+    public Repository fileRepository() {
+        return new Repository("synthetic-file", uri().toString());
+    }
+
+    /**
+     * Gets the coordinates of the root artifacts, to pass as the manifest dependencies.
+     *
+     * @return the root coordinates in format "groupId:artifactId:version"
+     */
+    public List<String> roots() {
+        return roots;
+    }
+
+    /**
+     * Gets the number of published artifact versions, conflicting versions included.
+     *
+     * @return the number of artifact versions
+     */
+    public int artifactCount() {
+        return artifactCount;
+    }
+
+    /**
+     * Gets the size of the published jars and POMs, checksums excluded.
+     *
+     * @return the size in bytes
+     */
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Builder of synthetic repositories.
+     */
+    public static final class Builder {
+
+        private String groupId = DEFAULT_GROUP_ID;
+        private int roots = 2;
+        private int depth = 3;
+        private int fanOut = 3;
+        private int maxWidth = 64;
+        private int jarSize = 16 * 1024;
+        private int conflicts = 0;
+        private long seed = 42;
+
+        /**
+         * Creates a builder with the default graph.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Sets the group of the generated artifacts.
+         *
+         * @param groupId the group id
+         * @return this builder
+         */
+        public Builder groupId(String groupId) {
+            this.groupId = groupId;
+            return this;
+        }
+
+        /**
+         * Sets the number of root artifacts.
+         *
+         * @param roots the number of roots, at least 1
+         * @return this builder
+         */
+        public Builder roots(int roots) {
+            this.roots = requirePositive(roots, "roots");
+            return this;
+        }
+
+        /**
+         * Sets the number of levels of the graph, roots included.
+         *
+         * @param depth the number of levels, at least 1
+         * @return this builder
+         */
+        public Builder depth(int depth) {
+            this.depth = requirePositive(depth, "depth");
+            return this;
+        }
+
+        /**
+         * Sets the number of direct dependencies of each artifact above the last level.
+         *
+         * @param fanOut the number of dependencies, at least 1
+         * @return this builder
+         */
+        public Builder fanOut(int fanOut) {
+            this.fanOut = requirePositive(fanOut, "fanOut");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of artifacts of a level. Wider levels are folded, so artifacts
+         * of the upper level share dependencies.
+         *
+         * @param maxWidth the maximum level width, at least 1
+         * @return this builder
+         */
+        public Builder maxWidth(int maxWidth) {
+            this.maxWidth = requirePositive(maxWidth, "maxWidth");
+            return this;
+        }
+
+        /**
+         * Sets the approximate size of each jar.
+         *
+         * @param jarSize the jar size in bytes
+         * @return this builder
+         */
+        public Builder jarSize(int jarSize) {
+            if (jarSize < 0) {
+                throw new IllegalArgumentException("jarSize must not be negative: " + jarSize);
+            }
+            this.jarSize = jarSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of artifacts published in two conflicting versions.
+         * Conflicts are only placed below the roots, and never exceed the number of such artifacts.
+         *
+         * @param conflicts the number of conflicting artifacts
+         * @return this builder
+         */
+        public Builder conflicts(int conflicts) {
+            if (conflicts < 0) {
+                throw new IllegalArgumentException("conflicts must not be negative: " + conflicts);
+            }
+            this.conflicts = conflicts;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the jar contents and of the conflict placement.
+         *
+         * @param seed the random seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Writes the repository into a directory.
+         *
+         * @param directory the repository root directory, created if needed
+         * @return the written repository
+         * @throws IOException if the repository cannot be written
+         */
+        public SyntheticRepository build(Path directory) throws IOException {
+            Random random = new Random(seed);
+
+            // Level widths, and the artifacts below the roots that get a second version
+            int[] widths = new int[depth];
+            for (int level = 0; level < depth; level++) {
+                long width = level == 0 ? roots : (long) widths[level - 1] * fanOut;
+                widths[level] = (int) Math.min(width, level == 0 ? roots : maxWidth);
+            }
+            List<String> candidates = new ArrayList<>();
+            for (int level = 1; level < depth; level++) {
+                for (int index = 0; index < widths[level]; index++) {
+                    candidates.add(artifactId(level, index));
+                }
+            }
+            Collections.shuffle(candidates, random);
+            List<String> conflicting = candidates.subList(0, Math.min(conflicts, candidates.size()));
+
+            Files.createDirectories(directory);
+            long totalBytes = 0;
+            int artifactCount = 0;
+            for (int level = 0; level < depth; level++) {
+                for (int index = 0; index < widths[level]; index++) {
+                    String artifactId = artifactId(level, index);
+                    Map<String, String> dependencies = new LinkedHashMap<>();
+                    if (level + 1 < depth) {
+                        for (int k = 0; k < fanOut; k++) {
+                            String child = artifactId(level + 1, (index * fanOut + k) % widths[level + 1]);
+                            // Half of the dependents of a conflicting artifact ask for its second version
+                            boolean newer = conflicting.contains(child) && index % 2 == 1;
+                            dependencies.putIfAbsent(child, newer ? CONFLICT_VERSION : BASE_VERSION);
+                        }
+                    }
+                    List<String> versions = conflicting.contains(artifactId)
+                        ? List.of(BASE_VERSION, CONFLICT_VERSION) : List.of(BASE_VERSION);
+                    for (String version : versions) {
+                        totalBytes += publish(directory, artifactId, version, dependencies, random);
+                        artifactCount++;
+                    }
+                }
+            }
+
+            List<String> rootCoordinates = new ArrayList<>();
+            for (int index = 0; index < widths[0]; index++) {
+                rootCoordinates.add(groupId + ":" + artifactId(0, index) + ":" + BASE_VERSION);
+            }
+            return new SyntheticRepository(directory, List.copyOf(rootCoordinates), artifactCount, totalBytes);
+        }
+
+        /**
+         * Writes the POM, the jar and their checksums of one artifact version.
+         *
+         * @param directory    the repository root directory
+         * @param artifactId   the artifact id
+         * @param version      the version
+         * @param dependencies the versions of the direct dependencies, by artifact id
+         * @param random       the source of the jar padding
+         * @return the size of the POM and the jar in bytes
+         * @throws IOException if the files cannot be written
+         */
+        private long publish(Path directory, String artifactId, String version, Map<String, String> dependencies,
+                             Random random) throws IOException {
+            Path versionDir = directory.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(version);
+            Files.createDirectories(versionDir);
+            String baseName = artifactId + "-" + version;
+
+            byte[] pom = pom(artifactId, version, dependencies).getBytes(StandardCharsets.UTF_8);
+            byte[] jar = jar(artifactId, random);
+            write(versionDir.resolve(baseName + ".pom"), pom);
+            write(versionDir.resolve(baseName + ".jar"), jar);
+            return pom.length + jar.length;
+        }
+
+        /**
+         * Writes a file with its SHA-1 and MD5 checksums, as a deployed artifact has.
+         *
+         * @param file    the file to write
+         * @param content the file content
+         * @throws IOException if the files cannot be written
+         */
+        private static void write(Path file, byte[] content) throws IOException {
+            Files.write(file, content);
+            Files.writeString(file.resolveSibling(file.getFileName() + ".sha1"), digest("SHA-1", content));
+            Files.writeString(file.resolveSibling(file.getFileName() + ".md5"), digest("MD5", content));
+        }
+
+        /**
+         * Builds the POM of an artifact version.
+         *
+         * @param artifactId   the artifact id
+         * @param version      the version
+         * @param dependencies the versions of the direct dependencies, by artifact id
+         * @return the POM content
+         */
+        private String pom(String artifactId, String version, Map<String, String> dependencies) {
+            StringBuilder pom = new StringBuilder();
+            pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+            pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+            pom.append("  <groupId>").append(groupId).append("</groupId>\n");
+            pom.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+            pom.append("  <version>").append(version).append("</version>\n");
+            if (!dependencies.isEmpty()) {
+                pom.append("  <dependencies>\n");
+                dependencies.forEach((dependency, dependencyVersion) -> {
+                    pom.append("    <dependency>\n");
+                    pom.append("      <groupId>").append(groupId).append("</groupId>\n");
+                    pom.append("      <artifactId>").append(dependency).append("</artifactId>\n");
+                    pom.append("      <version>").append(dependencyVersion).append("</version>\n");
+                    pom.append("    </dependency>\n");
+                });
+                pom.append("  </dependencies>\n");
+            }
+            pom.append("</project>\n");
+            return pom.toString();
+        }
+
+        /**
+         * Builds the jar of an artifact: a manifest, one empty class and a padding resource.
+         * The padding is random and stored uncompressed, so the jar has about the configured size.
+         *
+         * @param artifactId the artifact id
+         * @param random     the source of the padding
+         * @return the jar content
+         * @throws IOException if the jar cannot be built
+         */
+        private byte[] jar(String artifactId, Random random) throws IOException {
+            String packageName = (groupId + "." + artifactId).replace('-', '_').replace('.', '/');
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(jarSize + 1024);
+            try (JarOutputStream jar = new JarOutputStream(bytes, manifest)) {
+                jar.putNextEntry(new JarEntry(packageName + "/Marker.class"));
+                jar.write(emptyClass(packageName + "/Marker"));
+                jar.closeEntry();
+
+                byte[] padding = new byte[jarSize];
+                random.nextBytes(padding);
+                CRC32 crc = new CRC32();
+                crc.update(padding);
+                JarEntry entry = new JarEntry(packageName + "/padding.bin");
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(padding.length);
+                entry.setCrc(crc.getValue());
+                jar.putNextEntry(entry);
+                jar.write(padding);
+                jar.closeEntry();
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Gets the artifact id of a graph node.
+         *
+         * @param level the level of the node
+         * @param index the index of the node in its level
+         * @return the artifact id
+         */
+        private static String artifactId(int level, int index) {
+            return "lib-" + level + "-" + index;
+        }
+
+        /**
+         * Checks that a builder setting is positive.
+         *
+         * @param value the value
+         * @param name  the setting name
+         * @return the value
+         */
+        private static int requirePositive(int value, String name) {
+            if (value < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1: " + value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Builds the class file of a public class with no member, extending Object.
+     *
+     * @param internalName the internal name of the class
+     * @return the class file
+     * @throws IOException never, the class is written in memory
+     */
+    private static byte[] emptyClass(String internalName) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(65); // Java 21
+            out.writeShort(5); // constant pool count, entries 1 to 4
+            out.writeByte(7); // #1 Class #2
+            out.writeShort(2);
+            out.writeByte(1); // #2 Utf8
+            out.writeUTF(internalName);
+            out.writeByte(7); // #3 Class #4
+            out.writeShort(4);
+            out.writeByte(1); // #4 Utf8
+            out.writeUTF("java/lang/Object");
+            out.writeShort(0x0021); // ACC_PUBLIC | ACC_SUPER
+            out.writeShort(1); // this class
+            out.writeShort(3); // super class
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(0); // methods
+            out.writeShort(0); // attributes
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Computes the hexadecimal digest of some content.
+     *
+     * @param algorithm the digest algorithm
+     * @param content   the content
+     * @return the lowercase hexadecimal digest
+     */
+    private static String digest(String algorithm, byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(algorithm).digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+}
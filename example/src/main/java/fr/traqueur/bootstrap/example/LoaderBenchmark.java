@@ -0,0 +1,245 @@
+package fr.traqueur.bootstrap.example;
+
+import fr.traqueur.bootstrap.config.ClassIndex;
+import fr.traqueur.bootstrap.config.DependencyLock;
+import fr.traqueur.bootstrap.loader.IsolatedClassLoader;
+import fr.traqueur.bootstrap.loader.ModuleLayerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Compares a plain URLClassLoader, the isolated ClassLoader and the module layer loading mode.
+ * Run the example once first so that the cache directory holds a lockfile.
+ *
+ * <p>For each mode, the benchmark measures the startup time (creating the loader and loading
+ * every class once) and the steady-state cost of {@code loadClass} on already loaded classes.
+ * Each mode is measured in a fresh loader; pass a single mode to measure it in a fresh JVM, as
+ * modes run later in the same JVM benefit from the JIT and file system caches warmed by the first.
+ * The isolated ClassLoader uses the package index of the cache directory when present.</p>
+ *
+ * <p>It also reports the file descriptors opened by each loader and the process RSS (Linux), after a
+ * first lookup of one class and after loading every class, and for the isolated ClassLoader after
+ * closing idle jars.</p>
+ *
+ * <pre>{@code
+ * java -cp example.jar fr.traqueur.bootstrap.example.LoaderBenchmark [cacheDir] [rounds] [url|classloader|layer]
+ * }</pre>
+ */
+public class LoaderBenchmark {
+
+    private static final int MAX_CLASSES = 5000;
+
+    public static void main(String[] args) throws Exception {
+        Path cacheDir = Paths.get(args.length > 0 ? args[0] : ".bootstrap-loader/cache");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String only = args.length > 2 ? args[2] : null;
+
+        DependencyLock lock = DependencyLock.read(cacheDir);
+        List<Path> artifacts = lock == null ? null : lock.paths(cacheDir);
+        if (artifacts == null) {
+            System.err.println("[Benchmark] No complete lockfile in " + cacheDir + ", run the example first");
+            return;
+        }
+        List<String> classNames = listClasses(artifacts);
+        System.out.println("[Benchmark] " + artifacts.size() + " artifacts, " + classNames.size() + " classes, " + rounds + " rounds");
+
+        ClassLoader parent = LoaderBenchmark.class.getClassLoader();
+        URL[] urls = new URL[artifacts.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = artifacts.get(i).toUri().toURL();
+        }
+        if (only == null || only.equals("url")) {
+            run("url", () -> new URLClassLoader(urls, parent), classNames, rounds);
+        }
+        if (only == null || only.equals("classloader")) {
+            Map<Path, List<String>> packageIndex = packageIndex(lock, cacheDir);
+            run("classloader", () -> new IsolatedClassLoader(artifacts, packageIndex), classNames, rounds);
+        }
+        if (only == null || only.equals("layer")) {
+            run("layer", () -> ModuleLayerFactory.create(artifacts, parent).modules().iterator().next().getClassLoader(),
+                classNames, rounds);
+        }
+    }
+
+    /**
+     * Measures one loading mode.
+     *
+     * @param mode       the mode name
+     * @param factory    creates the ClassLoader of the mode
+     * @param classNames the classes to load
+     * @param rounds     the number of steady-state rounds
+     */
+    private static void run(String mode, Supplier<ClassLoader> factory, List<String> classNames, int rounds) {
+        long fdsBefore = openFileDescriptors();
+        ClassLoader loader;
+        long start = System.nanoTime();
+        try {
+            loader = factory.get();
+        } catch (RuntimeException e) {
+            System.out.println("[Benchmark] " + mode + ": unavailable (" + e.getMessage() + ")");
+            return;
+        }
+        long created = System.nanoTime();
+
+        // A single lookup of a class from the last artifact, such as the application entry point
+        try {
+            loader.loadClass(classNames.getLast());
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Missing optional dependency
+        }
+        String firstLookup = memory(fdsBefore);
+
+        // First load defines every class
+        List<String> loadable = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            try {
+                loader.loadClass(className);
+                loadable.add(className);
+            } catch (ClassNotFoundException | LinkageError e) {
+                // Missing optional dependency
+            }
+        }
+        long loaded = System.nanoTime();
+
+        // Steady state: every class is already loaded, only lookup and delegation remain
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long roundStart = System.nanoTime();
+            for (String className : loadable) {
+                try {
+                    loader.loadClass(className);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - roundStart);
+        }
+
+        System.out.printf("[Benchmark] %-11s create %7.2f ms, first load %8.2f ms (%d classes), loadClass %6.1f ns/op%n",
+            mode, (created - start) / 1e6, (loaded - created) / 1e6, loadable.size(),
+            loadable.isEmpty() ? 0.0 : (double) best / loadable.size());
+        System.out.println("[Benchmark] " + " ".repeat(11) + " after first lookup: " + firstLookup
+            + ", after loading all: " + memory(fdsBefore));
+
+        if (loader instanceof IsolatedClassLoader isolated) {
+            int closed = isolated.closeIdleJars(Duration.ZERO);
+            System.out.println("[Benchmark] " + " ".repeat(11) + " after closing " + closed + " idle jars: " + memory(fdsBefore));
+        }
+        if (loader instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                System.err.println("[Benchmark] Could not close " + mode + " loader: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the package index written into the cache directory by the prefetch task.
+     *
+     * @param lock     the lock of the cached artifacts
+     * @param cacheDir the cache directory
+     * @return the packages held by each indexed artifact, empty if no index is available
+     * @throws IOException if the index cannot be read
+     */
+    private static Map<Path, List<String>> packageIndex(DependencyLock lock, Path cacheDir) throws IOException {
+        Path indexFile = cacheDir.resolve(ClassIndex.FILE_NAME);
+        if (!Files.isRegularFile(indexFile)) {
+            return Map.of();
+        }
+        Map<String, ClassIndex.Entry> entries = ClassIndex.parse(Files.readString(indexFile)).byCoordinates();
+        Map<Path, List<String>> packageIndex = new HashMap<>();
+        for (DependencyLock.Entry artifact : lock.artifacts()) {
+            ClassIndex.Entry entry = entries.get(artifact.coordinates());
+            if (entry != null) {
+                packageIndex.put(cacheDir.resolve(artifact.path()), entry.packages());
+            }
+        }
+        return packageIndex;
+    }
+
+    /**
+     * Describes the file descriptors opened since a baseline and the process RSS.
+     *
+     * @param fdsBefore the open file descriptors of the baseline
+     * @return the description
+     */
+    private static String memory(long fdsBefore) {
+        long fds = openFileDescriptors();
+        String opened = fds < 0 || fdsBefore < 0 ? "n/a" : String.valueOf(fds - fdsBefore);
+        long rss = residentSetKilobytes();
+        return "+" + opened + " fds, RSS " + (rss < 0 ? "n/a" : (rss / 1024) + " MB");
+    }
+
+    /**
+     * Counts the open file descriptors of this process.
+     *
+     * @return the number of open file descriptors, or -1 if unavailable
+     */
+    private static long openFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean unix) {
+            return unix.getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the resident set size of this process from /proc (Linux only).
+     *
+     * @return the RSS in kilobytes, or -1 if unavailable
+     */
+    private static long residentSetKilobytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not on Linux
+        }
+        return -1;
+    }
+
+    /**
+     * Lists the classes of the artifacts, up to {@link #MAX_CLASSES}.
+     *
+     * @param artifacts the JAR files
+     * @return the fully qualified class names
+     * @throws IOException if a JAR cannot be read
+     */
+    private static List<String> listClasses(List<Path> artifacts) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        for (Path artifact : artifacts) {
+            try (JarFile jar = new JarFile(artifact.toFile())) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements() && classNames.size() < MAX_CLASSES) {
+                    String name = entries.nextElement().getName();
+                    if (name.endsWith(".class") && !name.startsWith("META-INF/")
+                        && !name.endsWith("module-info.class") && !name.endsWith("package-info.class")) {
+                        classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                    }
+                }
+            }
+        }
+        return classNames;
+    }
+}
@@ -4,4 +4,5 @@ rootProject.name = "Bootstrap"
 includeBuild("bootstrap-gradle")
 
 include("bootstrap-core")
-include("example")
\ No newline at end of file
+include("example")
+include("bootstrap-testing")
\ No newline at end of file